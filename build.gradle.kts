@@ -1,12 +1,32 @@
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
 import java.util.Properties
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.util.internal.VersionNumber
 
 version = "0.2"
 
+// JMH benchmarks in 'src/jmh/java' - run with './gradlew jmh' (optionally '-PjmhIncludes=<regex>')
+val jmh =
+    sourceSets.create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+
+configurations.named(jmh.implementationConfigurationName) {
+    extendsFrom(configurations.implementation.get(), configurations.compileOnly.get())
+}
+
 dependencies {
     compileOnly("org.apache.maven:maven-core:3.9.16")
     testImplementation("io.takari.maven.plugins:takari-plugin-integration-testing:3.1.1")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+// the in-process tests run the extension with the libraries of the Maven installation also used by the forked tests
+providers.environmentVariable("MAVEN_HOME").orNull?.let { mavenHome ->
+    dependencies { testImplementation(fileTree("$mavenHome/lib") { include("*.jar") }) }
 }
 
 jvmDependencyConflicts.patch {
@@ -56,9 +76,70 @@ publishingConventions {
     }
 }
 
+// the version is part of the fingerprint of '.mvn/module-dependencies.lock'
+tasks.jar { manifest { attributes("Implementation-Version" to version) } }
+
 publishing { repositories.maven(layout.buildDirectory.dir("test-repo")) { name = "testRepo" } }
 
-tasks.test { dependsOn(tasks.named("publishAllPublicationsToTestRepoRepository")) }
+tasks.test {
+    dependsOn(tasks.named("publishAllPublicationsToTestRepoRepository"))
+    systemProperty("extensionVersion", version.toString())
+    useJUnitPlatform { excludeTags("scaling") }
+}
+
+// tests on generated large reactors: './gradlew scalingTest' (optionally '-PscalingTestSizes=100,1000,5000')
+tasks.register<Test>("scalingTest") {
+    group = "verification"
+    description = "Runs the extension on generated reactors of growing size."
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    dependsOn(tasks.named("publishAllPublicationsToTestRepoRepository"))
+    systemProperty("extensionVersion", version.toString())
+    systemProperty("scalingTestSizes", providers.gradleProperty("scalingTestSizes").getOrElse("100,1000"))
+    useJUnitPlatform { includeTags("scaling") }
+    testLogging.showStandardStreams = true
+}
+
+val jmhResults = layout.buildDirectory.file("reports/jmh/results.json")
+val jmhBaseline = layout.projectDirectory.file("src/jmh/baseline.json")
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    outputs.file(jmhResults)
+    args(listOfNotNull(providers.gradleProperty("jmhIncludes").orNull))
+    args("-rf", "json", "-rff", jmhResults.get().asFile.absolutePath)
+}
+
+// quick run of all benchmarks (one short iteration without fork) to check that they work
+tasks.register<JavaExec>("jmhSmoke") {
+    group = "verification"
+    description = "Runs each JMH benchmark once for a short time."
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    args("-f", "0", "-wi", "0", "-i", "1", "-r", "100ms", "-foe", "true")
+}
+
+// compare with the committed baseline: './gradlew jmh jmhCompare' (optionally '-PjmhTolerance=<percent>')
+tasks.register<JmhBaselineCompare>("jmhCompare") {
+    group = "verification"
+    description = "Compares the JMH results with the baseline in 'src/jmh/baseline.json'."
+    mustRunAfter("jmh")
+    results = jmhResults
+    baseline = jmhBaseline
+    tolerance = providers.gradleProperty("jmhTolerance").map { it.toDouble() }.orElse(20.0)
+}
+
+tasks.register<Copy>("jmhUpdateBaseline") {
+    group = "verification"
+    description = "Replaces the baseline in 'src/jmh/baseline.json' with the JMH results."
+    mustRunAfter("jmh")
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+    rename { jmhBaseline.asFile.name }
+}
 
 // update 'unique_modules.properties'
 val detachedResolver: ProjectInternal.DetachedResolver = (project as ProjectInternal).newDetachedResolver()
@@ -92,9 +173,18 @@ val updateUniqueModulesProperties =
             )
     }
 
+// generate binary index of the mappings from 'unique_modules.properties' and 'modules.properties'
+val moduleMappingsIndex =
+    tasks.register<ModuleMappingsIndex>("moduleMappingsIndex") {
+        mappings.from(updateUniqueModulesProperties.flatMap { it.uniqueModulesProperties })
+        mappings.from("src/main/resources/org/gradlex/maven/javamodule/dependencies/modules.properties")
+        outputDirectory = layout.buildDirectory.dir("generated/resources/moduleMappingsIndex")
+    }
+
 sourceSets.main {
     resources.setSrcDirs(
         listOf(
+            moduleMappingsIndex.flatMap { it.outputDirectory },
             updateUniqueModulesProperties.map {
                 it.uniqueModulesProperties
                     .get()
@@ -152,3 +242,113 @@ abstract class UniqueModulesPropertiesUpdate : DefaultTask() {
 
     data class Module(val name: String, val ga: String, val version: String)
 }
+
+abstract class ModuleMappingsIndex : DefaultTask() {
+
+    @get:InputFiles abstract val mappings: ConfigurableFileCollection
+
+    @get:OutputDirectory abstract val outputDirectory: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val entries = sortedMapOf<String, String>()
+        mappings.forEach { file ->
+            val properties = Properties()
+            file.inputStream().use { properties.load(it) }
+            properties.forEach { (name, ga) ->
+                require(entries.put(name.toString(), ga.toString()) == null) { "$name already present." }
+            }
+        }
+        val groups = entries.values.map { it.substringBefore(":") }.distinct().sorted()
+        val groupIndex = groups.withIndex().associate { it.value to it.index }
+        require(groups.size <= 0xFFFF) { "Too many groups: ${groups.size}" }
+
+        // entries sorted by Module Name: name, group index, artifact (with optional '|classifier')
+        val entryArea = ByteArrayOutputStream()
+        val entryOut = DataOutputStream(entryArea)
+        val offsets =
+            entries.map { (name, ga) ->
+                val offset = entryOut.size()
+                entryOut.writeUTF(name)
+                entryOut.writeShort(groupIndex.getValue(ga.substringBefore(":")))
+                entryOut.writeUTF(ga.substringAfter(":"))
+                name to offset
+            }
+
+        // open-addressing hash table (linear probing) of entry offsets + 1, 0 marks an empty slot
+        var tableSize = 1
+        while (tableSize < entries.size * 2) {
+            tableSize = tableSize shl 1
+        }
+        val table = IntArray(tableSize)
+        offsets.forEach { (name, offset) ->
+            val hash = name.hashCode()
+            var index = (hash xor (hash ushr 16)) and (tableSize - 1)
+            while (table[index] != 0) {
+                index = (index + 1) and (tableSize - 1)
+            }
+            table[index] = offset + 1
+        }
+
+        val indexFile = outputDirectory.file("org/gradlex/maven/javamodule/dependencies/modules.idx").get().asFile
+        indexFile.parentFile.mkdirs()
+        DataOutputStream(indexFile.outputStream().buffered()).use { out ->
+            out.writeInt(0x4A4D4D49) // magic 'JMMI'
+            out.writeInt(1) // format version
+            out.writeInt(groups.size)
+            groups.forEach { out.writeUTF(it) }
+            out.writeInt(tableSize)
+            table.forEach { out.writeInt(it) }
+            out.writeInt(entryArea.size())
+            entryArea.writeTo(out)
+        }
+    }
+}
+
+abstract class JmhBaselineCompare : DefaultTask() {
+
+    @get:InputFile abstract val results: RegularFileProperty
+
+    @get:Internal abstract val baseline: RegularFileProperty
+
+    @get:Input abstract val tolerance: Property<Double>
+
+    @TaskAction
+    fun compare() {
+        val baselineFile = baseline.get().asFile
+        if (!baselineFile.exists()) {
+            throw GradleException("No baseline in '$baselineFile' - create it with './gradlew jmh jmhUpdateBaseline'")
+        }
+        val baselineScores = scores(baselineFile)
+        val regressions = mutableListOf<String>()
+        scores(results.get().asFile).forEach { (benchmark, result) ->
+            val base = baselineScores[benchmark]
+            if (base == null || base.unit != result.unit) {
+                logger.lifecycle("%-100s %12.3f %s (no baseline)".format(benchmark, result.score, result.unit))
+                return@forEach
+            }
+            // lower is better, except for throughput
+            val change = (result.score - base.score) / base.score * (if (result.mode == "thrpt") -100 else 100)
+            logger.lifecycle("%-100s %12.3f %s (%+.1f%%)".format(benchmark, result.score, result.unit, change))
+            if (change > tolerance.get()) {
+                regressions.add("$benchmark: %.3f -> %.3f %s".format(base.score, result.score, result.unit))
+            }
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException(
+                "Benchmarks slower than baseline by more than ${tolerance.get()}%:\n" + regressions.joinToString("\n")
+            )
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun scores(file: File): Map<String, Score> =
+        (groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>).associate { result ->
+            val params = (result["params"] as Map<String, Any?>?)?.toSortedMap()?.toString() ?: ""
+            val metric = result["primaryMetric"] as Map<String, Any?>
+            "${result["benchmark"]}$params" to
+                Score(result["mode"].toString(), (metric["score"] as Number).toDouble(), metric["scoreUnit"].toString())
+        }
+
+    data class Score(val mode: String, val score: Double, val unit: String)
+}
@@ -0,0 +1,91 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.model.Dependency;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds the dependencies for the 'requires' of one project with a large (BOM-style) list of managed dependencies. The
+ * resolution memo is shared by all invocations ('memo') or created for each invocation ('noMemo').
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddDependenciesBenchmark {
+
+    private static final int REQUIRES = 30;
+
+    @Param({"100", "1500"})
+    public int managedCount;
+
+    private ModuleInfo main;
+    private ModuleInfo test;
+    private ManagedDependencies managed;
+    private Map<String, String> localMappings;
+    private ResolvedModules resolvedModules;
+    private final Coordinates project = new Coordinates("org.example", "app", "1.0", null);
+    private final StringSearchInterpolator interpolator = new StringSearchInterpolator();
+
+    @Setup
+    public void setup() {
+        List<Dependency> managedDependencies = ManagedDependenciesBenchmark.managedDependencies(managedCount);
+        managed = new ManagedDependencies(managedDependencies);
+        localMappings = new HashMap<>();
+        StringBuilder mainContent = new StringBuilder("module org.example.app {\n");
+        for (int i = 0; i < REQUIRES; i++) {
+            Dependency required = managedDependencies.get((i * 7919) % managedCount);
+            localMappings.put("ext.m" + i, required.getGroupId() + ":" + required.getArtifactId());
+            mainContent.append(i % 3 == 0 ? "    requires static ext.m" : "    requires ext.m").append(i).append(";\n");
+        }
+        main = new ModuleInfo(mainContent.append("}").toString());
+        test = new ModuleInfo("module org.example.app.test { requires org.example.app; requires ext.m1; }");
+        resolvedModules = new ResolvedModules(localMappings, new Statistics());
+    }
+
+    @Benchmark
+    public List<Dependency> memo() {
+        return addDependencies(resolvedModules);
+    }
+
+    @Benchmark
+    public List<Dependency> noMemo() {
+        return addDependencies(new ResolvedModules(localMappings, new Statistics()));
+    }
+
+    private List<Dependency> addDependencies(ResolvedModules resolvedModules) {
+        List<Dependency> dependencies = new ArrayList<>();
+        ConfigurationUtil.addDependenciesForModuleInfo(
+                project,
+                new ProjectDependencies(dependencies),
+                main,
+                test,
+                managed,
+                Collections.singletonMap("org.example.app", project),
+                Collections.emptyMap(),
+                resolvedModules,
+                Collections.emptySet(),
+                interpolator);
+        return dependencies;
+    }
+}
@@ -0,0 +1,149 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs {@link JavaModuleDependenciesLifecycleParticipant#afterProjectsRead(MavenSession)} for a synthetic reactor. The
+ * projects have a parent with a large (BOM-style) list of managed dependencies and module-info.java files in a
+ * temporary directory. 'firstBuild' uses a new participant for each build, 'daemonBuild' reuses the participant like
+ * the Maven Daemon does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AfterProjectsReadBenchmark {
+
+    private static final int MANAGED = 1500;
+    private static final int LOCAL_REQUIRES = 3;
+    private static final int EXTERNAL_REQUIRES = 10;
+
+    @Param({"100", "1000"})
+    public int projectCount;
+
+    private Path rootDirectory;
+    private List<MavenProject> projects;
+    private MavenSession session;
+    private final JavaModuleDependenciesLifecycleParticipant daemonParticipant =
+            new JavaModuleDependenciesLifecycleParticipant();
+
+    @Setup
+    @SuppressWarnings("deprecation") // MavenSession constructor
+    public void setup() throws IOException {
+        rootDirectory = Files.createTempDirectory("after-projects-read");
+        List<Dependency> managed = ManagedDependenciesBenchmark.managedDependencies(MANAGED);
+        StringBuilder mappings = new StringBuilder();
+        for (int i = 0; i < MANAGED; i++) {
+            Dependency dependency = managed.get(i);
+            mappings.append("ext.m").append(i).append('=');
+            mappings.append(dependency.getGroupId()).append(':').append(dependency.getArtifactId()).append('\n');
+        }
+        Files.createDirectories(rootDirectory.resolve(".mvn"));
+        Files.write(rootDirectory.resolve(".mvn/modules.properties"), mappings.toString().getBytes(UTF_8));
+
+        MavenProject parent = project("parent", rootDirectory.toFile());
+        parent.getModel().setDependencyManagement(new DependencyManagement());
+        parent.getModel().getDependencyManagement().setDependencies(managed);
+
+        projects = new ArrayList<>();
+        projects.add(parent);
+        for (int i = 0; i < projectCount; i++) {
+            File projectDir = new File(rootDirectory.toFile(), "p" + i);
+            MavenProject project = project("p" + i, projectDir);
+            project.setParent(parent);
+            StringBuilder moduleInfo = new StringBuilder("module org.example.p" + i + " {\n");
+            for (int j = 1; j <= LOCAL_REQUIRES && j <= i; j++) {
+                moduleInfo.append("    requires org.example.p").append(i - j).append(";\n");
+            }
+            for (int j = 0; j < EXTERNAL_REQUIRES; j++) {
+                moduleInfo.append("    requires ext.m").append((i * 31 + j * 7919) % MANAGED).append(";\n");
+            }
+            Path sourceDir = projectDir.toPath().resolve("src/main/java");
+            Files.createDirectories(sourceDir);
+            Files.write(sourceDir.resolve("module-info.java"), moduleInfo.append("}").toString().getBytes(UTF_8));
+            project.addCompileSourceRoot(sourceDir.toString());
+            project.addTestCompileSourceRoot(projectDir.toPath().resolve("src/test/java").toString());
+            projects.add(project);
+        }
+
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setMultiModuleProjectDirectory(rootDirectory.toFile());
+        session = new MavenSession(null, null, request, new DefaultMavenExecutionResult());
+        session.setProjects(projects);
+        session.setAllProjects(projects);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetDependencies() {
+        for (MavenProject project : projects) {
+            project.getModel().setDependencies(new ArrayList<>());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(rootDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public MavenSession firstBuild() throws MavenExecutionException {
+        JavaModuleDependenciesLifecycleParticipant participant = new JavaModuleDependenciesLifecycleParticipant();
+        participant.afterProjectsRead(session);
+        participant.afterSessionEnd(session);
+        return session;
+    }
+
+    @Benchmark
+    public MavenSession daemonBuild() throws MavenExecutionException {
+        daemonParticipant.afterProjectsRead(session);
+        daemonParticipant.afterSessionEnd(session);
+        return session;
+    }
+
+    private static MavenProject project(String artifactId, File projectDir) {
+        Model model = new Model();
+        model.setGroupId("org.example");
+        model.setArtifactId(artifactId);
+        model.setVersion("1.0");
+        MavenProject project = new MavenProject(model);
+        project.setFile(new File(projectDir, "pom.xml"));
+        return project;
+    }
+}
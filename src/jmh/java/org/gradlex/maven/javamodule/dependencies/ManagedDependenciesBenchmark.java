@@ -0,0 +1,85 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.model.Dependency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up the versions for the 'requires' of one project in a large (BOM-style) list of managed dependencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagedDependenciesBenchmark {
+
+    private static final int REQUIRES = 30;
+
+    @Param({"100", "1500"})
+    public int managedCount;
+
+    private List<Dependency> managed;
+    private String[] groups;
+    private String[] artifacts;
+
+    @Setup
+    public void setup() {
+        managed = managedDependencies(managedCount);
+        groups = new String[REQUIRES];
+        artifacts = new String[REQUIRES];
+        for (int i = 0; i < REQUIRES; i++) {
+            Dependency required = managed.get((i * 7919) % managedCount);
+            groups[i] = required.getGroupId();
+            artifacts[i] = required.getArtifactId();
+        }
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        ManagedDependencies index = new ManagedDependencies(managed);
+        for (int i = 0; i < REQUIRES; i++) {
+            blackhole.consume(index.find(groups[i], artifacts[i]));
+        }
+    }
+
+    @Benchmark
+    public void linearSearch(Blackhole blackhole) {
+        for (int i = 0; i < REQUIRES; i++) {
+            String group = groups[i];
+            String artifact = artifacts[i];
+            Optional<Dependency> version = managed.stream()
+                    .filter(v -> v.getGroupId().equals(group) && v.getArtifactId().equals(artifact))
+                    .findFirst();
+            blackhole.consume(version);
+        }
+    }
+
+    static List<Dependency> managedDependencies(int count) {
+        List<Dependency> managed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId("org.example.group" + (i / 10));
+            dependency.setArtifactId("artifact-" + i);
+            dependency.setVersion("1." + i);
+            managed.add(dependency);
+        }
+        return managed;
+    }
+}
@@ -0,0 +1,74 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading the bundled Module Name mappings (binary index vs. properties files) and looking up Module Names in them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedMappingsBenchmark {
+
+    // known Module Names and Module Names that are not in the mappings
+    private static final String[] MODULE_NAMES = {
+        "org.slf4j",
+        "com.fasterxml.jackson.databind",
+        "org.apache.commons.lang3",
+        "jakarta.mail",
+        "org.junit.jupiter.api",
+        "com.google.common",
+        "org.example.unknown",
+        "org.example.lib",
+    };
+
+    private ModuleNameIndex index;
+    private Map<String, String> properties;
+
+    @Setup
+    public void setup() {
+        index = SharedMappings.loadModuleNameIndex();
+        properties = SharedMappings.loadModuleNameToGAProperties();
+    }
+
+    @Benchmark
+    public ModuleNameIndex loadIndex() {
+        return SharedMappings.loadModuleNameIndex();
+    }
+
+    @Benchmark
+    public Map<String, String> loadProperties() {
+        return SharedMappings.loadModuleNameToGAProperties();
+    }
+
+    @Benchmark
+    public void lookupIndex(Blackhole blackhole) {
+        for (String moduleName : MODULE_NAMES) {
+            blackhole.consume(index.get(moduleName));
+        }
+    }
+
+    @Benchmark
+    public void lookupProperties(Blackhole blackhole) {
+        for (String moduleName : MODULE_NAMES) {
+            blackhole.consume(properties.get(moduleName));
+        }
+    }
+}
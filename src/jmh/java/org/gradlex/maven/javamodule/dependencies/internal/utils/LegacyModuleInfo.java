@@ -0,0 +1,90 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.internal.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The line-based parser that was used before {@link ModuleInfo} got its single-pass tokenizer. Kept as a reference for
+ * {@link ModuleInfoParseBenchmark}.
+ */
+class LegacyModuleInfo {
+
+    private String moduleName = "";
+    private final List<String> requires = new ArrayList<>();
+    private final List<String> requiresTransitive = new ArrayList<>();
+    private final List<String> requiresStatic = new ArrayList<>();
+    private final List<String> requiresStaticTransitive = new ArrayList<>();
+    private final List<String> requiresRuntime = new ArrayList<>();
+
+    LegacyModuleInfo(String moduleInfoFileContent) {
+        boolean insideComment = false;
+        for (String line : moduleInfoFileContent.split("\n")) {
+            insideComment = parse(line, insideComment);
+        }
+    }
+
+    String getModuleName() {
+        return moduleName;
+    }
+
+    List<String> get(ModuleInfo.Directive directive) {
+        if (directive == ModuleInfo.Directive.REQUIRES) {
+            return requires;
+        }
+        if (directive == ModuleInfo.Directive.REQUIRES_TRANSITIVE) {
+            return requiresTransitive;
+        }
+        if (directive == ModuleInfo.Directive.REQUIRES_STATIC) {
+            return requiresStatic;
+        }
+        if (directive == ModuleInfo.Directive.REQUIRES_STATIC_TRANSITIVE) {
+            return requiresStaticTransitive;
+        }
+        if (directive == ModuleInfo.Directive.REQUIRES_RUNTIME) {
+            return requiresRuntime;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return true, if we are inside a multi-line comment after this line
+     */
+    private boolean parse(String moduleLine, boolean insideComment) {
+        if (insideComment) {
+            return !moduleLine.contains("*/");
+        }
+
+        List<String> tokens = Arrays.asList(moduleLine
+                .replace(";", "")
+                .replace("{", "")
+                .replace("}", "")
+                .replaceAll("/\\*.*?\\*/", " ")
+                .trim()
+                .split("\\s+"));
+        int singleLineCommentStartIndex = tokens.indexOf("//");
+        if (singleLineCommentStartIndex >= 0) {
+            tokens = tokens.subList(0, singleLineCommentStartIndex);
+        }
+
+        if (tokens.contains("module")) {
+            moduleName = tokens.get(tokens.size() - 1);
+        }
+        if (tokens.size() > 1 && tokens.get(0).equals("requires")) {
+            if (tokens.size() > 3 && tokens.contains("static") && tokens.contains("transitive")) {
+                requiresStaticTransitive.add(tokens.get(3));
+            } else if (tokens.size() > 2 && tokens.contains("transitive")) {
+                requiresTransitive.add(tokens.get(2));
+            } else if (tokens.size() > 2 && tokens.contains("static")) {
+                requiresStatic.add(tokens.get(2));
+            } else if (tokens.size() > 2 && tokens.contains("runtime")) {
+                requiresRuntime.add(tokens.get(2));
+            } else {
+                requires.add(tokens.get(1));
+            }
+        }
+        return moduleLine.lastIndexOf("/*") > moduleLine.lastIndexOf("*/");
+    }
+}
@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.internal.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single-pass tokenizer in {@link ModuleInfo} with the previous line-based parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuleInfoParseBenchmark {
+
+    @Param({"small", "huge", "comments"})
+    public String kind;
+
+    private String content;
+
+    @Setup
+    public void setup() {
+        content = moduleInfoContent(kind);
+    }
+
+    @Benchmark
+    public ModuleInfo tokenizer() {
+        return new ModuleInfo(content);
+    }
+
+    @Benchmark
+    public LegacyModuleInfo lineBased() {
+        return new LegacyModuleInfo(content);
+    }
+
+    static String moduleInfoContent(String kind) {
+        StringBuilder content = new StringBuilder();
+        if (kind.equals("small")) {
+            content.append("module org.example.app {\n");
+            content.append("    requires transitive org.example.lib;\n");
+            content.append("    requires static org.jspecify;\n");
+            content.append("    requires org.slf4j;\n");
+            content.append("    exports org.example.app;\n");
+        } else if (kind.equals("huge")) {
+            content.append("import org.example.spi.Service;\n\n");
+            content.append("@SuppressWarnings(\"requires-automatic\")\n");
+            content.append("open module org.example.app {\n");
+            for (int i = 0; i < 500; i++) {
+                content.append("    requires org.example.lib").append(i).append(";\n");
+                content.append("    requires static transitive org.example.opt").append(i).append(";\n");
+                content.append("    exports org.example.app.p").append(i).append(" to org.example.lib").append(i);
+                content.append(";\n");
+            }
+            content.append("    uses Service;\n");
+        } else if (kind.equals("comments")) {
+            content.append("/*\n * Licensed under the Apache License, Version 2.0 (the \"License\");\n */\n");
+            content.append("module org.example.app { // module org.example.other\n");
+            for (int i = 0; i < 50; i++) {
+                content.append("    /** requires org.example.commented").append(i).append("; */\n");
+                content.append("    requires /* inline */ org.example.lib").append(i).append("; // comment\n");
+                content.append("    // requires org.example.disabled").append(i).append(";\n");
+            }
+        } else {
+            throw new IllegalArgumentException(kind);
+        }
+        content.append("}\n");
+        return content.toString();
+    }
+}
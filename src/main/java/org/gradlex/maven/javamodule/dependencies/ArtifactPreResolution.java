@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactType;
+import org.eclipse.aether.artifact.ArtifactTypeRegistry;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.artifact.DefaultArtifactType;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the jars and POMs of the dependencies on artifacts outside the reactor in the background, right after the
+ * dependencies for the module-info.java files were added. At that point, the direct dependencies of all projects are
+ * known, while Maven resolves them project by project when the build reaches each project. Resolving them earlier,
+ * in batches on several threads, puts them into the local repository (and the caches of the resolver) before the
+ * projects need them. Failures are ignored, as Maven reports them when it resolves the dependencies itself. Batches
+ * that did not start when the build ends are dropped. Running batches are not interrupted, as an interrupted download
+ * is recorded as failed in the local repository.
+ */
+class ArtifactPreResolution {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactPreResolution.class);
+
+    private static final int THREADS = 4;
+    private static final int BATCH_SIZE = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory());
+    private final AtomicInteger resolved = new AtomicInteger();
+    private volatile boolean stopped;
+
+    private ArtifactPreResolution() {}
+
+    /**
+     * Starts resolving the dependencies of the given projects that are not projects of the reactor.
+     */
+    static ArtifactPreResolution start(
+            RepositorySystem repositorySystem,
+            RepositorySystemSession repositorySession,
+            List<MavenProject> projects,
+            List<MavenProject> allProjects) {
+        Map<String, ArtifactRequest> requests =
+                requests(projects, allProjects, repositorySession.getArtifactTypeRegistry());
+        ArtifactPreResolution preResolution = new ArtifactPreResolution();
+        List<ArtifactRequest> all = new ArrayList<>(requests.values());
+        for (int i = 0; i < all.size(); i += BATCH_SIZE) {
+            List<ArtifactRequest> batch = all.subList(i, Math.min(i + BATCH_SIZE, all.size()));
+            preResolution.executor.execute(() -> preResolution.resolve(repositorySystem, repositorySession, batch));
+        }
+        preResolution.executor.shutdown();
+        LOGGER.debug("Resolving {} artifacts in the background", all.size());
+        return preResolution;
+    }
+
+    /**
+     * @param types the types of the build, which define extension and classifier of a type ('test-jar', 'bundle', ...)
+     * @return one request per artifact, for the file and the POM of each dependency
+     */
+    private static Map<String, ArtifactRequest> requests(
+            List<MavenProject> projects, List<MavenProject> allProjects, ArtifactTypeRegistry types) {
+        Set<String> reactor = new HashSet<>();
+        for (MavenProject project : allProjects) {
+            reactor.add(DependencyLock.key(project));
+        }
+        Map<String, ArtifactRequest> requests = new LinkedHashMap<>();
+        for (MavenProject project : projects) {
+            for (Dependency dependency : project.getDependencies()) {
+                if (reactor.contains(dependency.getGroupId() + ":" + dependency.getArtifactId())
+                        || dependency.getVersion() == null
+                        || dependency.getVersion().contains("${")
+                        || "system".equals(dependency.getScope())) {
+                    continue;
+                }
+                String typeId = dependency.getType() == null ? "jar" : dependency.getType();
+                ArtifactType type = types == null ? null : types.get(typeId);
+                String groupId = dependency.getGroupId();
+                String artifactId = dependency.getArtifactId();
+                String version = dependency.getVersion();
+                // as in Maven's RepositoryUtils: extension and classifier (if not set) are taken from the type
+                add(
+                        requests,
+                        new DefaultArtifact(
+                                groupId,
+                                artifactId,
+                                dependency.getClassifier(),
+                                null,
+                                version,
+                                type == null ? new DefaultArtifactType(typeId) : type),
+                        project);
+                add(requests, new DefaultArtifact(groupId, artifactId, "pom", version), project);
+            }
+        }
+        return requests;
+    }
+
+    private static void add(Map<String, ArtifactRequest> requests, Artifact artifact, MavenProject project) {
+        requests.computeIfAbsent(
+                artifact.toString(),
+                a -> new ArtifactRequest(artifact, project.getRemoteProjectRepositories(), "java-module-dependencies"));
+    }
+
+    private void resolve(
+            RepositorySystem repositorySystem, RepositorySystemSession repositorySession, List<ArtifactRequest> batch) {
+        if (stopped) {
+            return;
+        }
+        List<ArtifactResult> results;
+        try {
+            results = repositorySystem.resolveArtifacts(repositorySession, batch);
+        } catch (ArtifactResolutionException e) {
+            results = e.getResults();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not resolve artifacts in the background", e);
+            return;
+        }
+        for (ArtifactResult result : results) {
+            if (result.isResolved()) {
+                resolved.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops the batches that did not start yet.
+     *
+     * @return the number of artifacts resolved so far
+     */
+    int stop() {
+        stopped = true;
+        return resolved.get();
+    }
+}
@@ -0,0 +1,80 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Paths of changed files, e.g. the files changed by a pull request, and the projects they belong to. A file belongs to
+ * the project with the closest base directory above it. A change to the POM of a parent project (or any other file
+ * directly in its directory) therefore affects the parent, which in turn affects all projects inheriting from it.
+ */
+class ChangedFiles {
+
+    private final List<Path> paths;
+
+    private ChangedFiles(List<Path> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * @param value comma-separated paths relative to the root directory (or absolute); an entry starting with '@' is a
+     *     file containing one path per line, like the output of 'git diff --name-only'
+     */
+    static ChangedFiles parse(String value, Path rootDirectory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            entry = entry.trim();
+            if (entry.startsWith("@")) {
+                for (String line : Files.readAllLines(rootDirectory.resolve(entry.substring(1)), UTF_8)) {
+                    add(paths, line, rootDirectory);
+                }
+            } else {
+                add(paths, entry, rootDirectory);
+            }
+        }
+        return new ChangedFiles(paths);
+    }
+
+    private static void add(List<Path> paths, String path, Path rootDirectory) {
+        path = path.trim();
+        if (!path.isEmpty() && !path.startsWith("#")) {
+            paths.add(rootDirectory.resolve(path).toAbsolutePath().normalize());
+        }
+    }
+
+    int size() {
+        return paths.size();
+    }
+
+    /**
+     * @return the projects containing the changed files, files outside of all projects are ignored
+     */
+    Set<MavenProject> projects(List<MavenProject> allProjects) {
+        Map<Path, MavenProject> projectsByDirectory = new HashMap<>();
+        for (MavenProject project : allProjects) {
+            projectsByDirectory.put(project.getBasedir().toPath().toAbsolutePath().normalize(), project);
+        }
+        Set<MavenProject> projects = new LinkedHashSet<>();
+        for (Path path : paths) {
+            for (Path directory = path; directory != null; directory = directory.getParent()) {
+                MavenProject project = projectsByDirectory.get(directory);
+                if (project != null) {
+                    projects.add(project);
+                    break;
+                }
+            }
+        }
+        return projects;
+    }
+}
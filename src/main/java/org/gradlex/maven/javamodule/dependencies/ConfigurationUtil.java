@@ -1,14 +1,18 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.gradlex.maven.javamodule.dependencies;
 
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.Interpolator;
+import org.gradlex.maven.javamodule.dependencies.ResolvedModules.ResolvedModule;
 import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,14 +22,15 @@ class ConfigurationUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationUtil.class);
 
     static void addDependenciesForModuleInfo(
-            String from,
-            List<Dependency> dependencies,
+            Coordinates from,
+            ProjectDependencies dependencies,
             ModuleInfo mainModuleInfo,
             ModuleInfo testModuleInfo,
-            List<Dependency> managed,
-            Map<String, String> moduleNameToLocal,
-            Map<String, String> localTestMappings,
-            Map<String, String> localMappings,
+            ManagedDependencies managed,
+            Map<String, Coordinates> moduleNameToLocal,
+            Map<String, Coordinates> localTestMappings,
+            ResolvedModules resolvedModules,
+            Set<String> jdkModules,
             Interpolator interpolator) {
         mainModuleInfo
                 .get(ModuleInfo.Directive.REQUIRES)
@@ -35,7 +40,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "compile",
                         d,
                         interpolator)); // should be "runtime" in consumer BOM
@@ -47,7 +53,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "compile",
                         d,
                         interpolator));
@@ -59,7 +66,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "provided",
                         d,
                         interpolator));
@@ -71,7 +79,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "compile",
                         d,
                         interpolator)); // should be "???" in consumer BOM
@@ -84,7 +93,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "test",
                         d,
                         interpolator));
@@ -96,7 +106,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "test",
                         d,
                         interpolator));
@@ -108,7 +119,8 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "test",
                         d,
                         interpolator));
@@ -120,84 +132,108 @@ class ConfigurationUtil {
                         managed,
                         moduleNameToLocal,
                         localTestMappings,
-                        localMappings,
+                        resolvedModules,
+                        jdkModules,
                         "test",
                         d,
                         interpolator));
     }
 
     private static void addDependency(
-            String from,
-            List<Dependency> dependencies,
-            List<Dependency> managed,
-            Map<String, String> moduleNameToLocal,
-            Map<String, String> moduleNameToLocalTest,
-            Map<String, String> localMappings,
+            Coordinates from,
+            ProjectDependencies dependencies,
+            ManagedDependencies managed,
+            Map<String, Coordinates> moduleNameToLocal,
+            Map<String, Coordinates> moduleNameToLocalTest,
+            ResolvedModules resolvedModules,
+            Set<String> jdkModules,
             String scope,
             String moduleName,
             Interpolator interpolator) {
-        if (JDKInfo.MODULES.contains(moduleName)) {
-            return;
+        ModuleDependencyResolvedEvent event = FlightRecording.isRunning() ? new ModuleDependencyResolvedEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        String source = addDependencyFromSource(
+                from,
+                dependencies,
+                managed,
+                moduleNameToLocal,
+                moduleNameToLocalTest,
+                resolvedModules,
+                jdkModules,
+                scope,
+                moduleName,
+                interpolator);
+        if (event != null && event.shouldCommit()) {
+            event.project = from.toString();
+            event.moduleName = moduleName;
+            event.scope = scope;
+            event.source = source;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return where the Module Name was found (see {@link ModuleDependencyResolvedEvent})
+     */
+    private static String addDependencyFromSource(
+            Coordinates from,
+            ProjectDependencies dependencies,
+            ManagedDependencies managed,
+            Map<String, Coordinates> moduleNameToLocal,
+            Map<String, Coordinates> moduleNameToLocalTest,
+            ResolvedModules resolvedModules,
+            Set<String> jdkModules,
+            String scope,
+            String moduleName,
+            Interpolator interpolator) {
+        if (jdkModules.contains(moduleName)) {
+            return ModuleDependencyResolvedEvent.JDK;
         }
 
-        String localModule = moduleNameToLocal.get(moduleName);
+        Coordinates localModule = moduleNameToLocal.get(moduleName);
         if (from.equals(localModule)) {
-            return; // do not add dependency on self (test -> main)
+            return ModuleDependencyResolvedEvent.SELF; // do not add dependency on self (test -> main)
         }
         if (localModule != null) {
-            String[] gav = localModule.split(":");
-            defineDependency(dependencies, scope, gav[0], gav[1], gav[2], null);
-            return;
+            defineDependency(dependencies, scope, localModule, null);
+            return ModuleDependencyResolvedEvent.LOCAL;
         }
-        String localTestModule = moduleNameToLocalTest.get(moduleName);
+        Coordinates localTestModule = moduleNameToLocalTest.get(moduleName);
         if (localTestModule != null) {
-            String[] gav = localTestModule.split(":");
-            defineDependency(dependencies, scope, gav[0], gav[1], gav[2], "tests");
-            return;
+            defineDependency(dependencies, scope, localTestModule, "tests");
+            return ModuleDependencyResolvedEvent.LOCAL_TEST;
         }
 
-        String externalModule = localMappings.get(moduleName);
-        if (externalModule == null) {
-            externalModule = SharedMappings.mappings.get(moduleName);
-        }
-        if (externalModule == null) {
+        ResolvedModule externalModule = resolvedModules.resolve(moduleName, managed);
+        if (externalModule.coordinates == null) {
             LOGGER.warn("Mapping missing in '.mvn/modules.properties': {}", moduleName);
-            return;
+            return ModuleDependencyResolvedEvent.MISSING_MAPPING;
         }
 
-        String[] ga = externalModule.split(":");
-        String[] artifactAndClassifier = ga[1].split("\\|");
-        String group = ga[0];
-        String artifact = artifactAndClassifier[0];
         String classifier;
-
         try {
-            classifier = artifactAndClassifier.length > 1 ? interpolator.interpolate(artifactAndClassifier[1]) : null;
+            String classifierTemplate = externalModule.coordinates.getClassifier();
+            classifier = classifierTemplate != null ? interpolator.interpolate(classifierTemplate) : null;
         } catch (InterpolationException e) {
             throw new RuntimeException(e);
         }
 
-        Optional<Dependency> version = managed.stream()
-                .filter(v -> v.getGroupId().equals(group) && v.getArtifactId().equals(artifact))
-                .findFirst();
-        if (!version.isPresent()) {
-            LOGGER.warn("Version missing: {}", externalModule);
-            return;
+        if (externalModule.coordinates.getVersion() == null) {
+            LOGGER.warn("Version missing: {}", externalModule.mapping);
+            return ModuleDependencyResolvedEvent.MISSING_VERSION;
         }
-        defineDependency(dependencies, scope, group, artifact, version.get().getVersion(), classifier);
+        defineDependency(dependencies, scope, externalModule.coordinates, classifier);
+        return externalModule.source;
     }
 
     private static void defineDependency(
-            List<Dependency> dependencies,
-            String scope,
-            String group,
-            String artifactId,
-            String version,
-            String classifier) {
+            ProjectDependencies dependencies, String scope, Coordinates coordinates, String classifier) {
         Dependency dependency = new Dependency();
-        dependency.setGroupId(group);
-        dependency.setArtifactId(artifactId);
-        dependency.setVersion(version);
+        dependency.setGroupId(coordinates.getGroup());
+        dependency.setArtifactId(coordinates.getArtifact());
+        dependency.setVersion(coordinates.getVersion());
         dependency.setScope(scope);
         if (classifier != null) {
             dependency.setClassifier(classifier);
@@ -205,13 +241,63 @@ class ConfigurationUtil {
         dependencies.add(dependency);
     }
 
-    static void collectManagedDependencies(MavenProject project, List<Dependency> managedDependencies) {
-        DependencyManagement dependencyManagement = project.getDependencyManagement();
-        if (dependencyManagement != null) {
-            managedDependencies.addAll(dependencyManagement.getDependencies());
+    /**
+     * Collects the managed dependencies of a project and its parents. Each project of the hierarchy is processed once
+     * per reactor: children share the instance of their parent and only add their own entries on top of it. Children
+     * that do not change any version use the parent instance itself, which lets them share resolution results (see
+     * {@link ResolvedModules}).
+     */
+    static ManagedDependencies collectManagedDependencies(
+            MavenProject project, Map<MavenProject, ManagedDependencies> reactorManagedDependencies) {
+        ManagedDependencies managed = reactorManagedDependencies.get(project);
+        if (managed == null) {
+            ManagedDependencies parent = project.getParent() == null
+                    ? null
+                    : collectManagedDependencies(project.getParent(), reactorManagedDependencies);
+            DependencyManagement dependencyManagement = project.getDependencyManagement();
+            if (parent != null && inheritsManagedDependencies(project)) {
+                managed = parent;
+            } else if (dependencyManagement == null || dependencyManagement.getDependencies().isEmpty()) {
+                managed = parent == null ? new ManagedDependencies(Collections.emptyList()) : parent;
+            } else {
+                managed = new ManagedDependencies(parent, dependencyManagement.getDependencies());
+                if (managed.isEmpty()) {
+                    managed = parent; // only repeats versions of the parent (e.g. inherited entries)
+                }
+            }
+            reactorManagedDependencies.put(project, managed);
         }
-        if (project.getParent() != null) {
-            collectManagedDependencies(project.getParent(), managedDependencies);
+        return managed;
+    }
+
+    /**
+     * A project that does not define 'dependencyManagement', properties or profiles of its own and has the same
+     * version as its parent ('${project.version}'), has the same managed versions as its parent. Then, the (possibly
+     * large) inherited list does not need to be compared with the parent entry by entry. This does not hold if a parent
+     * POM has a profile that is activated by a file, because Maven activates it for the directory of each child.
+     */
+    private static boolean inheritsManagedDependencies(MavenProject project) {
+        Model original = project.getOriginalModel();
+        return original != null
+                && original.getDependencyManagement() == null
+                && original.getProperties().isEmpty()
+                && original.getProfiles().isEmpty()
+                && Objects.equals(project.getVersion(), project.getParent().getVersion())
+                && !hasFileActivatedProfiles(project.getParent());
+    }
+
+    private static boolean hasFileActivatedProfiles(MavenProject project) {
+        for (MavenProject current = project; current != null; current = current.getParent()) {
+            Model original = current.getOriginalModel();
+            if (original == null) {
+                return true; // unknown
+            }
+            for (Profile profile : original.getProfiles()) {
+                if (profile.getActivation() != null && profile.getActivation().getFile() != null) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 }
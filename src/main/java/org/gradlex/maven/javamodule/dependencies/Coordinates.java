@@ -0,0 +1,85 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.Objects;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Immutable, pre-parsed coordinates of a local project or of a mapping target. Version and classifier are optional.
+ * The classifier of a mapping may contain ${property} placeholders that are interpolated per project.
+ */
+public final class Coordinates {
+    private final String group;
+    private final String artifact;
+    private final String version;
+    private final String classifier;
+
+    Coordinates(String group, String artifact, String version, String classifier) {
+        this.group = group;
+        this.artifact = artifact;
+        this.version = version;
+        this.classifier = classifier;
+    }
+
+    static Coordinates of(MavenProject project) {
+        return new Coordinates(project.getGroupId(), project.getArtifactId(), project.getVersion(), null);
+    }
+
+    /**
+     * @param mapping 'group:artifact' or 'group:artifact|classifier' as used in 'modules.properties'
+     */
+    static Coordinates parseMapping(String mapping) {
+        int groupEnd = mapping.indexOf(':');
+        if (groupEnd < 0) {
+            throw new IllegalArgumentException("Not a 'group:artifact' mapping: " + mapping);
+        }
+        int artifactEnd = mapping.indexOf('|', groupEnd + 1);
+        return new Coordinates(
+                mapping.substring(0, groupEnd),
+                mapping.substring(groupEnd + 1, artifactEnd < 0 ? mapping.length() : artifactEnd),
+                null,
+                artifactEnd < 0 ? null : mapping.substring(artifactEnd + 1));
+    }
+
+    Coordinates withVersion(String version) {
+        return new Coordinates(group, artifact, version, classifier);
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getArtifact() {
+        return artifact;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getClassifier() {
+        return classifier;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Coordinates that = (Coordinates) o;
+        return group.equals(that.group)
+                && artifact.equals(that.artifact)
+                && Objects.equals(version, that.version)
+                && Objects.equals(classifier, that.classifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(group, artifact, version, classifier);
+    }
+
+    @Override
+    public String toString() {
+        return group + ":" + artifact + (version == null ? "" : ":" + version)
+                + (classifier == null ? "" : "|" + classifier);
+    }
+}
@@ -0,0 +1,250 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Snapshot of the dependencies added to each project of the reactor, stored in '.mvn/module-dependencies.lock'. The
+ * snapshot belongs to a fingerprint of everything the added dependencies are computed from: the module-info.java
+ * files, the Module Name mappings (and the state of the local repository index, if it is used), the managed versions,
+ * the properties and the compiler release of each project, as well as the versions of the extension and the JDK. If
+ * the fingerprint of a build matches, the dependencies are taken from the snapshot without parsing module-info.java
+ * files or resolving Module Names.
+ */
+class DependencyLock {
+
+    static final String FILE_NAME = ".mvn/module-dependencies.lock";
+
+    private static final String HEADER = "# Dependencies added by the Java Module Dependencies Maven extension";
+    private static final String FINGERPRINT = "fingerprint=";
+    private static final int FORMAT_VERSION = 1;
+
+    private final String fingerprint;
+    private final Map<String, List<Dependency>> dependencies;
+
+    DependencyLock(String fingerprint, Map<String, List<Dependency>> dependencies) {
+        this.fingerprint = fingerprint;
+        this.dependencies = dependencies;
+    }
+
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the dependencies added to the project with the given 'groupId:artifactId'
+     */
+    List<Dependency> get(String project) {
+        return dependencies.getOrDefault(project, Collections.emptyList());
+    }
+
+    /**
+     * @return the content of the lock file or null if it does not exist or cannot be read
+     */
+    static DependencyLock read(Path lockFile) throws IOException {
+        Map<String, List<Dependency>> dependencies = new LinkedHashMap<>();
+        String fingerprint = null;
+        List<Dependency> current = null;
+        try (BufferedReader reader = Files.newBufferedReader(lockFile, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith(FINGERPRINT)) {
+                    fingerprint = line.substring(FINGERPRINT.length());
+                } else if (line.startsWith("[") && line.endsWith("]")) {
+                    current = new ArrayList<>();
+                    dependencies.put(line.substring(1, line.length() - 1), current);
+                } else if (current != null) {
+                    Dependency dependency = parseDependency(line);
+                    if (dependency == null) {
+                        return null;
+                    }
+                    current.add(dependency);
+                } else {
+                    return null;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return fingerprint == null ? null : new DependencyLock(fingerprint, dependencies);
+    }
+
+    /**
+     * Writes the lock file, replacing an existing file atomically (if the file system supports it).
+     */
+    void write(Path lockFile) throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        Path tmpFile = Files.createTempFile(lockFile.getParent(), lockFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, UTF_8)) {
+                writer.write(HEADER + " - generated, do not edit\n");
+                writer.write(FINGERPRINT + fingerprint + "\n");
+                for (Map.Entry<String, List<Dependency>> project : dependencies.entrySet()) {
+                    if (project.getValue().isEmpty()) {
+                        continue;
+                    }
+                    writer.write("\n[" + project.getKey() + "]\n");
+                    for (Dependency dependency : project.getValue()) {
+                        writer.write(formatDependency(dependency) + "\n");
+                    }
+                }
+            }
+            try {
+                Files.move(tmpFile, lockFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, lockFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * 'groupId:artifactId:version:scope[:classifier]'
+     */
+    private static String formatDependency(Dependency dependency) {
+        return dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion() + ":"
+                + dependency.getScope() + (dependency.getClassifier() == null ? "" : ":" + dependency.getClassifier());
+    }
+
+    private static Dependency parseDependency(String line) {
+        String[] segments = line.split(":");
+        if (segments.length < 4 || segments.length > 5) {
+            return null;
+        }
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(segments[0]);
+        dependency.setArtifactId(segments[1]);
+        dependency.setVersion(segments[2]);
+        dependency.setScope(segments[3]);
+        if (segments.length == 5) {
+            dependency.setClassifier(segments[4]);
+        }
+        return dependency;
+    }
+
+    static String key(MavenProject project) {
+        return project.getGroupId() + ":" + project.getArtifactId();
+    }
+
+    /**
+     * Computes the fingerprint of a build from the inputs of all projects in reactor order.
+     */
+    static class Fingerprint {
+        private final MessageDigest digest = sha256();
+        private final Map<ManagedDependencies, byte[]> managedHashes = new IdentityHashMap<>();
+        private final ModuleInfoParseCache parseCache;
+
+        /**
+         * @param repositoryIndexState state of the local repository index or null if the index is not used
+         * @param parseCache used to get the content hash of module-info.java files that did not change since they were
+         *     parsed, without reading them again
+         */
+        Fingerprint(Map<String, String> localMappings, String repositoryIndexState, ModuleInfoParseCache parseCache) {
+            this.parseCache = parseCache;
+            update("format " + FORMAT_VERSION);
+            update("repository index " + repositoryIndexState);
+            update(String.valueOf(DependencyLock.class.getPackage().getImplementationVersion()));
+            update(System.getProperty("java.specification.version"));
+            for (Map.Entry<String, String> mapping : new TreeMap<>(localMappings).entrySet()) {
+                update(mapping.getKey() + "=" + mapping.getValue());
+            }
+        }
+
+        void addProject(
+                MavenProject project,
+                String compilerRelease,
+                ManagedDependencies managed,
+                Optional<File> mainModuleInfo,
+                Optional<File> testModuleInfo)
+                throws IOException {
+            update("project " + key(project) + ":" + project.getVersion());
+            update("release " + compilerRelease);
+            for (Map.Entry<Object, Object> property :
+                    new TreeMap<>(project.getModel().getProperties()).entrySet()) {
+                update(property.getKey() + "=" + property.getValue());
+            }
+            digest.update(hash(managed));
+            addFile(mainModuleInfo);
+            addFile(testModuleInfo);
+        }
+
+        private void addFile(Optional<File> file) throws IOException {
+            if (file.isPresent()) {
+                byte[] hash = parseCache.getContentHash(file.get());
+                if (hash == null) {
+                    hash = ModuleInfoParseCache.hash(Files.readAllBytes(file.get().toPath()));
+                }
+                update("file");
+                digest.update(hash);
+            } else {
+                update("no file");
+            }
+        }
+
+        private byte[] hash(ManagedDependencies managed) {
+            byte[] hash = managedHashes.get(managed);
+            if (hash == null) {
+                MessageDigest managedDigest = sha256();
+                if (managed.getParent() != null) {
+                    managedDigest.update(hash(managed.getParent()));
+                }
+                TreeMap<String, String> versions = new TreeMap<>();
+                for (Dependency dependency : managed.getEntries()) {
+                    versions.put(dependency.getGroupId() + ":" + dependency.getArtifactId(), dependency.getVersion());
+                }
+                managedDigest.update(versions.toString().getBytes(UTF_8));
+                hash = managedDigest.digest();
+                managedHashes.put(managed, hash);
+            }
+            return hash;
+        }
+
+        private void update(String value) {
+            digest.update(value.getBytes(UTF_8));
+            digest.update((byte) 0);
+        }
+
+        String finish() {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
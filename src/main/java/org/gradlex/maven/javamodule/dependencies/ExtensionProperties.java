@@ -0,0 +1,117 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Options of the extension, which can be set as user properties ('-D' on the command line or in '.mvn/maven.config')
+ * or as system properties.
+ */
+final class ExtensionProperties {
+
+    /**
+     * Number of threads used to discover and parse module-info.java files; '0' uses one thread per processor.
+     */
+    static final String THREADS = "javaModuleDependencies.threads";
+
+    /**
+     * If 'true', parse results of module-info.java files are kept in 'target/java-module-dependencies' of the root
+     * project and reused by later builds.
+     */
+    static final String PARSE_CACHE = "javaModuleDependencies.parseCache";
+
+    /**
+     * Maximum number of parsed module-info.java files kept in memory between builds, if Maven runs as a daemon.
+     */
+    static final String CACHE_MAX_ENTRIES = "javaModuleDependencies.cacheMaxEntries";
+
+    /**
+     * If 'true', timings and counters of the extension are printed at the end of the build and written to
+     * 'target/java-module-dependencies/statistics.json' of the root project.
+     */
+    static final String STATISTICS = "javaModuleDependencies.statistics";
+
+    /**
+     * If 'true' and only some projects are selected for the build ('-pl', '-rf'), dependencies are only added to the
+     * selected projects and the local modules they require. Other module-info.java files are only read on demand.
+     */
+    static final String SELECTED_PROJECTS = "javaModuleDependencies.selectedProjects";
+
+    /**
+     * If 'true', the added dependencies are stored in '.mvn/module-dependencies.lock' together with a fingerprint of
+     * all inputs. Later builds with the same inputs take the dependencies from the file.
+     */
+    static final String LOCK_FILE = "javaModuleDependencies.lockFile";
+
+    /**
+     * If 'true', the depth of each project, the critical path and the achievable parallelism of the reactor are
+     * reported and written to 'target/java-module-dependencies/module-graph.txt' of the root project.
+     */
+    static final String MODULE_GRAPH = "javaModuleDependencies.moduleGraph";
+
+    /**
+     * If 'true', module-info.java files in the default source folders below the root project are parsed in the
+     * background while Maven reads the POMs. Requires registering the extension in '.mvn/extensions.xml'.
+     */
+    static final String PREFETCH = "javaModuleDependencies.prefetch";
+
+    /**
+     * If 'true', Module Names without a mapping are looked up in an index of the jars in the local Maven repository.
+     * The index is kept in the repository and updated when a Module Name is not found in it.
+     */
+    static final String LOCAL_REPOSITORY_INDEX = "javaModuleDependencies.localRepositoryIndex";
+
+    /**
+     * If 'true', the Module Path of each project is written to 'target/java-module-dependencies' of the project.
+     */
+    static final String MODULE_PATH_FILES = "javaModuleDependencies.modulePathFiles";
+
+    /**
+     * If 'true', the dependencies on artifacts outside the reactor are resolved in the background right after they
+     * were added, before Maven resolves them for each project.
+     */
+    static final String PRE_RESOLVE = "javaModuleDependencies.preResolve";
+
+    /**
+     * Paths of changed files (comma-separated, or '@file' with one path per line). Only the projects containing these
+     * files and the projects depending on them are built.
+     */
+    static final String CHANGED_FILES = "javaModuleDependencies.changedFiles";
+
+    /**
+     * 'select' (default) to only build the projects affected by the {@link #CHANGED_FILES}, 'print' to only list them.
+     */
+    static final String AFFECTED_PROJECTS = "javaModuleDependencies.affectedProjects";
+
+    private ExtensionProperties() {}
+
+    static String get(MavenSession session, String name) {
+        String value = session.getUserProperties().getProperty(name);
+        if (value == null) {
+            value = session.getSystemProperties().getProperty(name);
+        }
+        return value == null ? null : value.trim();
+    }
+
+    static boolean getBoolean(MavenSession session, String name) {
+        return Boolean.parseBoolean(get(session, name));
+    }
+
+    static int getInt(MavenSession session, String name, int defaultValue) throws MavenExecutionException {
+        String value = get(session, name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new MavenExecutionException("Property '" + name + "' must be a number: " + value, e);
+        }
+    }
+
+    static int getThreads(MavenSession session) throws MavenExecutionException {
+        int threads = getInt(session, THREADS, 1);
+        return threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+}
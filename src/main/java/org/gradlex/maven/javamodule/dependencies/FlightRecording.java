@@ -0,0 +1,28 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.RecordingState;
+
+/**
+ * Whether the JFR events of the extension are created. Creating the first event loads its class, which JFR then
+ * instruments even if nothing is recorded. The events are therefore only created while a recording runs. This is
+ * checked once per build, so a recording started in the middle of a build only records the next build.
+ */
+final class FlightRecording {
+
+    private static volatile boolean running;
+
+    private FlightRecording() {}
+
+    static void update() {
+        // 'getFlightRecorder()' would start the recorder, which is not needed if no recording was ever started
+        running = FlightRecorder.isInitialized()
+                && FlightRecorder.getFlightRecorder().getRecordings().stream()
+                        .anyMatch(recording -> recording.getState() == RecordingState.RUNNING);
+    }
+
+    static boolean isRunning() {
+        return running;
+    }
+}
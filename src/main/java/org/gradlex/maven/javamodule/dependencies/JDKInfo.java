@@ -1,11 +1,38 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.gradlex.maven.javamodule.dependencies;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-interface JDKInfo {
-    List<String> MODULES = Arrays.asList(
+/**
+ * The Modules of the JDK for a given release ('maven.compiler.release'). For older releases, the Module Names are read
+ * from the 'lib/ct.sym' file of the running JDK - the same data 'javac --release' uses. For the release of the running
+ * JDK (or if no release is set) the system modules of the running JDK are used, together with a fixed list of the
+ * Modules of a full JDK. A runtime created with 'jlink' may only contain some of them, while the code is usually
+ * compiled for a full JDK. Results are cached per release.
+ */
+final class JDKInfo {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JDKInfo.class);
+
+    private static final String MODULE_INFO_SIGNATURE = "/module-info.sig";
+
+    // Modules of a full JDK 17, for runtimes that do not contain all Modules
+    private static final List<String> KNOWN_MODULES = Arrays.asList(
             "java.base",
             "java.compiler",
             "java.datatransfer",
@@ -68,4 +95,65 @@ interface JDKInfo {
             "jdk.unsupported.desktop",
             "jdk.xml.dom",
             "jdk.zipfs");
+
+    private static final Map<String, Set<String>> MODULES = new ConcurrentHashMap<>();
+
+    private JDKInfo() {}
+
+    /**
+     * @param release the Java release to compile for or null for the release of the running JDK
+     */
+    static Set<String> modules(String release) {
+        return MODULES.computeIfAbsent(release == null ? "" : release, JDKInfo::loadModules);
+    }
+
+    private static Set<String> loadModules(String release) {
+        int feature = parseRelease(release);
+        if (feature > 0 && feature < Runtime.version().feature()) {
+            Set<String> modules = readCtSym(feature);
+            if (!modules.isEmpty()) {
+                return modules;
+            }
+        }
+        Set<String> modules = new HashSet<>(KNOWN_MODULES);
+        for (ModuleReference module : ModuleFinder.ofSystem().findAll()) {
+            modules.add(module.descriptor().name());
+        }
+        return Collections.unmodifiableSet(modules);
+    }
+
+    /**
+     * In 'ct.sym', the signature files of a Module are located in '{releases}/{module}/module-info.sig', where
+     * '{releases}' lists all releases that share the same signatures (7, 8, 9, A=10, B=11, ...).
+     */
+    private static Set<String> readCtSym(int feature) {
+        File ctSym = new File(System.getProperty("java.home"), "lib/ct.sym");
+        char releaseCode = feature < 10 ? (char) ('0' + feature) : (char) ('A' + feature - 10);
+        Set<String> modules = new HashSet<>();
+        try (ZipFile zip = new ZipFile(ctSym)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                int releasesEnd = name.indexOf('/');
+                if (name.endsWith(MODULE_INFO_SIGNATURE)
+                        && releasesEnd > 0
+                        && name.lastIndexOf('/', name.length() - MODULE_INFO_SIGNATURE.length() - 1) == releasesEnd
+                        && name.lastIndexOf(releaseCode, releasesEnd) >= 0) {
+                    modules.add(name.substring(releasesEnd + 1, name.length() - MODULE_INFO_SIGNATURE.length()));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not read JDK Modules of release {} from {}", feature, ctSym, e);
+        }
+        return Collections.unmodifiableSet(modules);
+    }
+
+    private static int parseRelease(String release) {
+        String version = release.startsWith("1.") ? release.substring(2) : release;
+        try {
+            return Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
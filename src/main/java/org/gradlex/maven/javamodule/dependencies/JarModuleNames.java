@@ -0,0 +1,137 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Module Names of the jars in the local Maven repository, stored by the SHA-1 checksum of the jar. The checksum is
+ * taken from the '.sha1' file Maven puts next to a downloaded jar, so that the jar itself is only opened once for all
+ * builds using the repository. The Module Name of each checksum is kept in its own file below
+ * '.java-module-dependencies/descriptors' of the repository. As the content of such a file never changes, it is
+ * written without locking. Jars without '.sha1' file (e.g. installed from a local build) are read every time.
+ */
+class JarModuleNames {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JarModuleNames.class);
+
+    private static final Pattern SHA1 = Pattern.compile("[0-9a-f]{40}");
+    private static final Pattern VERSION = Pattern.compile("-(\\d+(\\.|$))");
+
+    private final Path repository;
+    private final Path descriptors;
+    // checksum -> Module Name, kept between builds of the Maven Daemon
+    private final Map<String, String> moduleNames = new ConcurrentHashMap<>();
+
+    JarModuleNames(Path repository) {
+        this.repository = repository;
+        this.descriptors = repository.resolve(".java-module-dependencies/descriptors");
+    }
+
+    Path getRepository() {
+        return repository;
+    }
+
+    /**
+     * @return the name of the named or automatic module the given jar of the repository is on the Module Path
+     */
+    String get(Path jar, Statistics statistics) {
+        String checksum = checksum(jar);
+        if (checksum == null) {
+            return read(jar, statistics);
+        }
+        return moduleNames.computeIfAbsent(checksum, c -> {
+            Path descriptor = descriptors.resolve(c.substring(0, 2)).resolve(c);
+            try {
+                List<String> lines = Files.readAllLines(descriptor, UTF_8);
+                if (!lines.isEmpty() && !lines.get(0).isEmpty()) {
+                    return lines.get(0);
+                }
+            } catch (NoSuchFileException e) {
+                // not read yet
+            } catch (IOException e) {
+                LOGGER.debug("Could not read {}", descriptor, e);
+            }
+            String moduleName = read(jar, statistics);
+            write(descriptor, moduleName);
+            return moduleName;
+        });
+    }
+
+    private static String checksum(Path jar) {
+        try {
+            String content = new String(Files.readAllBytes(jar.resolveSibling(jar.getFileName() + ".sha1")), UTF_8)
+                    .trim()
+                    .toLowerCase(Locale.ROOT);
+            // some repositories add the file name after the checksum
+            String checksum = content.split("\\s+")[0];
+            return SHA1.matcher(checksum).matches() ? checksum : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String read(Path jar, Statistics statistics) {
+        statistics.increment(Statistics.Counter.JARS_READ);
+        String moduleName = LocalRepositoryIndex.readModuleName(jar);
+        return moduleName == null ? automaticModuleName(jar.getFileName().toString()) : moduleName;
+    }
+
+    private void write(Path descriptor, String moduleName) {
+        try {
+            Files.createDirectories(descriptor.getParent());
+            Path tmpFile = Files.createTempFile(descriptor.getParent(), descriptor.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmpFile, (moduleName + "\n").getBytes(UTF_8));
+                try {
+                    Files.move(tmpFile, descriptor, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmpFile, descriptor);
+                }
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // written by another build at the same time, with the same content
+        } catch (IOException e) {
+            LOGGER.debug("Could not write {}", descriptor, e);
+        }
+    }
+
+    /**
+     * The name of a jar without Module Name on the Module Path, derived from the file name as described in
+     * {@link java.lang.module.ModuleFinder#of(Path...)}.
+     */
+    static String automaticModuleName(String fileName) {
+        String name = fileName.endsWith(".jar") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        Matcher version = VERSION.matcher(name);
+        if (version.find()) {
+            name = name.substring(0, version.start());
+        }
+        name = name.replaceAll("[^A-Za-z0-9]", ".").replaceAll("\\.{2,}", ".");
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) == '.') {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) == '.') {
+            end--;
+        }
+        return name.substring(start, end);
+    }
+}
@@ -6,75 +6,467 @@ import static org.gradlex.maven.javamodule.dependencies.ConfigurationUtil.collec
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.interpolation.Interpolator;
 import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
 import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.RepositorySystem;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Singleton
 @Named("java-module-dependencies")
 public class JavaModuleDependenciesLifecycleParticipant extends AbstractMavenLifecycleParticipant {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaModuleDependenciesLifecycleParticipant.class);
+
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 10000;
+
+    // Kept for as long as the extension is loaded, which spans several builds if Maven runs as a daemon
     private final MavenModuleInfoCache moduleInfoCache = new MavenModuleInfoCache();
+    private final ModuleInfoParseCache parseCache = new ModuleInfoParseCache();
+    private final LocalMappings localMappingsFile = new LocalMappings();
+    private final RepositorySystem repositorySystem;
+
+    private Statistics statistics = new Statistics();
+    private ModuleInfoPrefetch prefetch;
+    private ArtifactPreResolution preResolution;
+    private LocalRepositoryIndex repositoryIndex;
+    private JarModuleNames jarModuleNames;
+    private Path parseCacheFile;
+    private int cacheMaxEntries = DEFAULT_CACHE_MAX_ENTRIES;
+
+    public JavaModuleDependenciesLifecycleParticipant() {
+        this(null);
+    }
+
+    /**
+     * @param repositorySystem used to resolve dependencies in the background, if that is enabled
+     */
+    @Inject
+    public JavaModuleDependenciesLifecycleParticipant(RepositorySystem repositorySystem) {
+        this.repositorySystem = repositorySystem;
+        moduleInfoCache.setParseCache(parseCache);
+    }
+
+    /**
+     * Only called if the extension is registered in '.mvn/extensions.xml'. If it is registered in a POM, it is loaded
+     * after the session started.
+     */
+    @Override
+    public void afterSessionStart(MavenSession session) throws MavenExecutionException {
+        if (ExtensionProperties.getBoolean(session, ExtensionProperties.PREFETCH)) {
+            File rootDirectory = session.getRequest().getMultiModuleProjectDirectory();
+            if (rootDirectory != null) {
+                prefetch = ModuleInfoPrefetch.start(
+                        rootDirectory.toPath(), parseCache, ExtensionProperties.getThreads(session));
+            }
+        }
+    }
 
     @Override
     public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
-        List<MavenProject> projects = session.getAllProjects();
-        Map<String, String> localMappings =
-                loadLocalMappings(session.getRequest().getMultiModuleProjectDirectory());
+        long start = System.nanoTime();
+        FlightRecording.update();
+        int prefetched = stopPrefetch();
+        List<MavenProject> allProjects = session.getAllProjects();
+        statistics = new Statistics();
+        statistics.add(Statistics.Counter.PREFETCHED_FILES, prefetched);
+        moduleInfoCache.setStatistics(statistics);
+        File rootDirectory = session.getRequest().getMultiModuleProjectDirectory();
+        Map<String, String> localMappings = localMappingsFile.load(rootDirectory);
+        int threads = ExtensionProperties.getThreads(session);
+        cacheMaxEntries =
+                ExtensionProperties.getInt(session, ExtensionProperties.CACHE_MAX_ENTRIES, DEFAULT_CACHE_MAX_ENTRIES);
 
+        if (ExtensionProperties.getBoolean(session, ExtensionProperties.PARSE_CACHE)) {
+            parseCacheFile = rootDirectory.toPath().resolve("target/java-module-dependencies/module-info.cache");
+            parseCache.load(parseCacheFile);
+        }
+
+        Map<MavenProject, ManagedDependencies> reactorManagedDependencies = new IdentityHashMap<>();
+        LocalRepositoryIndex currentRepositoryIndex =
+                ExtensionProperties.getBoolean(session, ExtensionProperties.LOCAL_REPOSITORY_INDEX)
+                        ? repositoryIndex(session)
+                        : null;
+        ResolvedModules resolvedModules = new ResolvedModules(localMappings, currentRepositoryIndex, statistics);
+        try {
+            if (processSelectedProjectsOnly(session)) {
+                LocalModules localModules = new LocalModules(moduleInfoCache, allProjects, localMappings, threads);
+                Set<MavenProject> required = addDependenciesToSelectedProjects(
+                        session.getProjects(), localModules, reactorManagedDependencies, resolvedModules);
+                if (MavenExecutionRequest.REACTOR_MAKE_UPSTREAM.equals(session.getRequest().getMakeBehavior())) {
+                    addRequiredProjects(session, required);
+                }
+            } else if (ExtensionProperties.getBoolean(session, ExtensionProperties.LOCK_FILE)) {
+                addDependenciesWithLockFile(
+                        allProjects,
+                        rootDirectory.toPath().resolve(DependencyLock.FILE_NAME),
+                        localMappings,
+                        currentRepositoryIndex,
+                        threads,
+                        reactorManagedDependencies,
+                        resolvedModules);
+            } else {
+                moduleInfoCache.putAll(allProjects, threads);
+                for (MavenProject project : allProjects) {
+                    addDependencies(
+                            project,
+                            moduleInfoCache.getMainModuleNameToCoordinates(),
+                            moduleInfoCache.getTestModuleNameToCoordinates(),
+                            reactorManagedDependencies,
+                            resolvedModules,
+                            null);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new MavenExecutionException("Error reading module-info.java", e);
+        }
+
+        String changedFiles = ExtensionProperties.get(session, ExtensionProperties.CHANGED_FILES);
+        boolean affectedProjects = changedFiles != null && !changedFiles.isEmpty();
+        boolean reportModuleGraph = ExtensionProperties.getBoolean(session, ExtensionProperties.MODULE_GRAPH);
+        ModuleGraph moduleGraph = null;
+        if (affectedProjects || reportModuleGraph) {
+            moduleGraph = new ModuleGraph(allProjects, this::displayName);
+            List<MavenProject> cycle = moduleGraph.findCycle();
+            if (!cycle.isEmpty()) {
+                // Maven fails when it orders the projects again after this, but does not name the Modules of the cycle
+                LOGGER.error(
+                        "Cycle in the dependencies between projects (a -> b: a depends on b): {}",
+                        moduleGraph.join(cycle));
+                statistics.stop(Statistics.Phase.TOTAL, start);
+                return;
+            }
+        }
+        if (affectedProjects) {
+            selectAffectedProjects(session, moduleGraph, changedFiles);
+        }
+        if (ExtensionProperties.getBoolean(session, ExtensionProperties.MODULE_PATH_FILES)) {
+            writeModulePathFiles(session);
+        }
+        if (ExtensionProperties.getBoolean(session, ExtensionProperties.PRE_RESOLVE)
+                && repositorySystem != null
+                && session.getRepositorySession() != null) {
+            preResolution = ArtifactPreResolution.start(
+                    repositorySystem, session.getRepositorySession(), session.getProjects(), allProjects);
+        }
+        if (reportModuleGraph) {
+            reportModuleGraph(moduleGraph, rootDirectory);
+        }
+        statistics.stop(Statistics.Phase.TOTAL, start);
+    }
+
+    /**
+     * Selects the projects containing the changed files and all projects depending on them (or only lists them). The
+     * list is also written to 'target/java-module-dependencies/affected-projects.txt' of the root project, one
+     * 'groupId:artifactId' per line, which can be passed on to '-pl'.
+     */
+    private void selectAffectedProjects(MavenSession session, ModuleGraph moduleGraph, String changedFilesProperty)
+            throws MavenExecutionException {
+        File rootDirectory = session.getRequest().getMultiModuleProjectDirectory();
+        String mode = ExtensionProperties.get(session, ExtensionProperties.AFFECTED_PROJECTS);
+        boolean print = "print".equals(mode);
+        if (!print && mode != null && !mode.isEmpty() && !"select".equals(mode)) {
+            throw new MavenExecutionException(
+                    "Property '" + ExtensionProperties.AFFECTED_PROJECTS + "' must be 'select' or 'print': " + mode,
+                    new File(rootDirectory, "pom.xml"));
+        }
+        ChangedFiles changedFiles;
+        try {
+            changedFiles = ChangedFiles.parse(changedFilesProperty, rootDirectory.toPath());
+        } catch (IOException e) {
+            throw new MavenExecutionException("Error reading changed files", e);
+        }
+        Set<MavenProject> changed = changedFiles.projects(session.getAllProjects());
+        List<MavenProject> affected = moduleGraph.getDependents(changed);
+        LOGGER.info(
+                "Changed files: {} in {} projects, affected projects: {} of {}",
+                changedFiles.size(),
+                changed.size(),
+                affected.size(),
+                session.getAllProjects().size());
+
+        StringBuilder list = new StringBuilder();
+        for (MavenProject project : affected) {
+            list.append(DependencyLock.key(project)).append('\n');
+            if (print) {
+                LOGGER.info("Affected project: {}", displayName(project));
+            }
+        }
+        Path listFile = rootDirectory.toPath().resolve("target/java-module-dependencies/affected-projects.txt");
+        try {
+            Files.createDirectories(listFile.getParent());
+            Files.write(listFile, list.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write affected projects: {}", e.getMessage());
+        }
+
+        if (!print) {
+            Set<MavenProject> affectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            affectedSet.addAll(affected);
+            List<MavenProject> selected = new ArrayList<>();
+            for (MavenProject project : session.getProjects()) {
+                if (affectedSet.contains(project)) {
+                    selected.add(project);
+                }
+            }
+            if (selected.isEmpty() && !session.getProjects().isEmpty()) {
+                // Maven needs at least one project, the first one is usually the root project
+                selected.add(session.getProjects().get(0));
+                LOGGER.info("No project affected by the changed files, only building {}", displayName(selected.get(0)));
+            }
+            session.setProjects(selected);
+        }
+    }
+
+    private String displayName(MavenProject project) {
+        String moduleName = moduleInfoCache.getMain(project).getModuleName();
+        return moduleName.isEmpty() ? project.getArtifactId() : moduleName;
+    }
+
+    private void reportModuleGraph(ModuleGraph moduleGraph, File rootDirectory) {
+        for (String line : moduleGraph.report(10).split(System.lineSeparator())) {
+            LOGGER.info("Module graph: {}", line);
+        }
+        Path reportFile = rootDirectory.toPath().resolve("target/java-module-dependencies/module-graph.txt");
+        try {
+            Files.createDirectories(reportFile.getParent());
+            String report = moduleGraph.report(Integer.MAX_VALUE) + System.lineSeparator() + "Depth of each project:"
+                    + System.lineSeparator() + moduleGraph.depths();
+            Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write module graph: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dependencies are only added to the selected projects if that is enabled and not all projects are selected.
+     * Maven selects the projects before this, based on the dependencies in the POMs, and does not look at the added
+     * dependencies again. If the projects depending on the selected projects are built as well ('-amd'), all
+     * module-info.java files would need to be read to find them. The same is true for the projects affected by
+     * changed files.
+     */
+    private boolean processSelectedProjectsOnly(MavenSession session) {
+        String makeBehavior = session.getRequest().getMakeBehavior();
+        String changedFiles = ExtensionProperties.get(session, ExtensionProperties.CHANGED_FILES);
+        return ExtensionProperties.getBoolean(session, ExtensionProperties.SELECTED_PROJECTS)
+                && (changedFiles == null || changedFiles.isEmpty())
+                && session.getProjects().size() < session.getAllProjects().size()
+                && !MavenExecutionRequest.REACTOR_MAKE_DOWNSTREAM.equals(makeBehavior)
+                && !MavenExecutionRequest.REACTOR_MAKE_BOTH.equals(makeBehavior);
+    }
+
+    /**
+     * Adds the dependencies of the selected projects and of all projects of the reactor they depend on, directly or
+     * transitively.
+     *
+     * @return the selected projects and the projects of the reactor they depend on
+     */
+    private Set<MavenProject> addDependenciesToSelectedProjects(
+            List<MavenProject> selectedProjects,
+            LocalModules localModules,
+            Map<MavenProject, ManagedDependencies> reactorManagedDependencies,
+            ResolvedModules resolvedModules)
+            throws IOException {
+        localModules.read(selectedProjects);
+        Set<MavenProject> processed = Collections.newSetFromMap(new IdentityHashMap<>());
+        processed.addAll(selectedProjects);
+        Deque<MavenProject> queue = new ArrayDeque<>(selectedProjects);
+        while (!queue.isEmpty()) {
+            MavenProject project = queue.poll();
+            addDependencies(
+                    project,
+                    localModules.getMainModuleNameToCoordinates(),
+                    localModules.getTestModuleNameToCoordinates(),
+                    reactorManagedDependencies,
+                    resolvedModules,
+                    null);
+            for (Dependency dependency : project.getDependencies()) {
+                MavenProject required = localModules.project(dependency.getGroupId(), dependency.getArtifactId());
+                if (required != null && processed.add(required)) {
+                    localModules.read(Collections.singletonList(required));
+                    queue.add(required);
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * If the projects required by the selected projects are built as well ('-am'), Maven only found those required
+     * through the dependencies in the POMs. The projects only required through module-info.java files are added here.
+     * Maven orders the projects of the build again after this, taking the added dependencies into account.
+     */
+    private void addRequiredProjects(MavenSession session, Set<MavenProject> required) {
+        if (required.size() == session.getProjects().size()) {
+            return;
+        }
+        List<MavenProject> projects = new ArrayList<>();
+        for (MavenProject project : session.getAllProjects()) {
+            if (required.contains(project)) {
+                projects.add(project);
+            }
+        }
+        LOGGER.info(
+                "Building {} projects required through module-info.java in addition to the {} selected projects",
+                projects.size() - session.getProjects().size(),
+                session.getProjects().size());
+        session.setProjects(projects);
+    }
+
+    /**
+     * Takes the dependencies from the lock file, if its fingerprint matches the inputs of this build. Otherwise, the
+     * dependencies are computed and the lock file is written. With the local repository index, the lock file is not
+     * written while a Module Name is missing (it may be found in jars downloaded later) or if the index changed while
+     * the dependencies were computed.
+     *
+     * @param repositoryIndex the index of the local repository or null if it is not used
+     */
+    private void addDependenciesWithLockFile(
+            List<MavenProject> projects,
+            Path lockFile,
+            Map<String, String> localMappings,
+            LocalRepositoryIndex repositoryIndex,
+            int threads,
+            Map<MavenProject, ManagedDependencies> reactorManagedDependencies,
+            ResolvedModules resolvedModules)
+            throws IOException {
+        long start = System.nanoTime();
+        String repositoryIndexState = repositoryIndex == null ? null : repositoryIndex.getState();
+        DependencyLock.Fingerprint fingerprint =
+                new DependencyLock.Fingerprint(localMappings, repositoryIndexState, parseCache);
         for (MavenProject project : projects) {
-            try {
-                moduleInfoCache.put(project);
-            } catch (IOException e) {
-                throw new MavenExecutionException("Error reading module-info.java", e);
+            fingerprint.addProject(
+                    project,
+                    compilerRelease(project),
+                    collectManagedDependencies(project, reactorManagedDependencies),
+                    moduleInfoCache.findMainModuleInfo(project),
+                    moduleInfoCache.findTestModuleInfo(project));
+        }
+        String currentFingerprint = fingerprint.finish();
+        DependencyLock lock;
+        try {
+            lock = DependencyLock.read(lockFile);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Ignoring unreadable lock file: {}", lockFile, e);
+            lock = null;
+        }
+        statistics.stop(Statistics.Phase.LOCK_FILE, start);
+
+        if (lock != null && lock.getFingerprint().equals(currentFingerprint)) {
+            start = System.nanoTime();
+            for (MavenProject project : projects) {
+                int dependencyCount = project.getDependencies().size();
+                ProjectDependencies dependencies = new ProjectDependencies(project.getDependencies());
+                for (Dependency dependency : lock.get(DependencyLock.key(project))) {
+                    dependencies.add(dependency.clone());
+                }
+                statistics.increment(Statistics.Counter.PROJECTS);
+                statistics.add(
+                        Statistics.Counter.DEPENDENCIES_ADDED, project.getDependencies().size() - dependencyCount);
             }
+            statistics.stop(Statistics.Phase.INJECTION, start);
+            return;
         }
 
+        moduleInfoCache.putAll(projects, threads);
+        Map<String, List<Dependency>> added = new LinkedHashMap<>();
         for (MavenProject project : projects) {
-            List<Dependency> managedDependencies = new ArrayList<>();
-            collectManagedDependencies(project, managedDependencies);
-
-            addDependenciesForModuleInfo(
-                    project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion(),
-                    project.getDependencies(),
-                    moduleInfoCache.getMain(project),
-                    moduleInfoCache.getTest(project),
-                    managedDependencies,
+            List<Dependency> projectAdded = new ArrayList<>();
+            addDependencies(
+                    project,
                     moduleInfoCache.getMainModuleNameToCoordinates(),
                     moduleInfoCache.getTestModuleNameToCoordinates(),
-                    localMappings,
-                    interpolator(project));
+                    reactorManagedDependencies,
+                    resolvedModules,
+                    projectAdded);
+            added.put(DependencyLock.key(project), projectAdded);
         }
+        if (repositoryIndex != null
+                && (statistics.get(Statistics.Counter.MISSING_MAPPINGS) > 0
+                        || !repositoryIndex.getState().equals(repositoryIndexState))) {
+            LOGGER.debug("Not updating {}: Module Names are missing or the local repository index changed", lockFile);
+            return;
+        }
+        start = System.nanoTime();
+        new DependencyLock(currentFingerprint, added).write(lockFile);
+        statistics.stop(Statistics.Phase.LOCK_FILE, start);
+        LOGGER.info("Updated {}", lockFile);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private Map<String, String> loadLocalMappings(File root) {
-        Map<String, String> localMappings = new LinkedHashMap<>();
-        File mappingFile = new File(root, ".mvn/modules.properties");
-        if (mappingFile.exists()) {
-            try {
-                Properties p = new Properties();
-                p.load(Files.newInputStream(mappingFile.toPath()));
-                localMappings.putAll((Map) p);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    /**
+     * @param added where to record the added dependencies, or null to not record them
+     */
+    private void addDependencies(
+            MavenProject project,
+            Map<String, Coordinates> moduleNameToLocal,
+            Map<String, Coordinates> moduleNameToLocalTest,
+            Map<MavenProject, ManagedDependencies> reactorManagedDependencies,
+            ResolvedModules resolvedModules,
+            List<Dependency> added) {
+        long start = System.nanoTime();
+        ManagedDependencies managedDependencies = collectManagedDependencies(project, reactorManagedDependencies);
+        statistics.stop(Statistics.Phase.MANAGED_DEPENDENCIES, start);
+
+        start = System.nanoTime();
+        ModuleInfo main = moduleInfoCache.getMain(project);
+        ModuleInfo test = moduleInfoCache.getTest(project);
+        int dependencyCount = project.getDependencies().size();
+        addDependenciesForModuleInfo(
+                Coordinates.of(project),
+                new ProjectDependencies(project.getDependencies(), added),
+                main,
+                test,
+                managedDependencies,
+                moduleNameToLocal,
+                moduleNameToLocalTest,
+                resolvedModules,
+                JDKInfo.modules(compilerRelease(project)),
+                interpolator(project));
+        statistics.stop(Statistics.Phase.INJECTION, start);
+        statistics.increment(Statistics.Counter.PROJECTS);
+        statistics.add(Statistics.Counter.DIRECTIVES, main.getDirectiveCount() + test.getDirectiveCount());
+        statistics.add(Statistics.Counter.DEPENDENCIES_ADDED, project.getDependencies().size() - dependencyCount);
+    }
+
+    /**
+     * @return the 'release' configured for the maven-compiler-plugin or null if it is not set
+     */
+    private String compilerRelease(MavenProject project) {
+        Plugin compilerPlugin = project.getPlugin("org.apache.maven.plugins:maven-compiler-plugin");
+        if (compilerPlugin != null && compilerPlugin.getConfiguration() instanceof Xpp3Dom) {
+            Xpp3Dom release = ((Xpp3Dom) compilerPlugin.getConfiguration()).getChild("release");
+            if (release != null && release.getValue() != null && !release.getValue().contains("${")) {
+                return release.getValue().trim();
             }
         }
-        return localMappings;
+        return project.getProperties().getProperty("maven.compiler.release");
     }
 
     private Interpolator interpolator(MavenProject project) {
@@ -85,6 +477,101 @@ public class JavaModuleDependenciesLifecycleParticipant extends AbstractMavenLif
         return interpolator;
     }
 
+    /**
+     * @return the index of the local repository of this build, kept as long as the repository does not change, or
+     *     null if the build has no local repository
+     */
+    private LocalRepositoryIndex repositoryIndex(MavenSession session) {
+        Path repository = localRepository(session);
+        if (repository == null) {
+            return null;
+        }
+        if (repositoryIndex == null || !repositoryIndex.getRepository().equals(repository)) {
+            repositoryIndex = new LocalRepositoryIndex(repository);
+        }
+        repositoryIndex.startBuild();
+        return repositoryIndex;
+    }
+
+    private void writeModulePathFiles(MavenSession session) throws MavenExecutionException {
+        Path repository = localRepository(session);
+        if (repository == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (jarModuleNames == null || !jarModuleNames.getRepository().equals(repository)) {
+            jarModuleNames = new JarModuleNames(repository);
+        }
+        ModulePathFiles modulePathFiles =
+                new ModulePathFiles(jarModuleNames, moduleInfoCache, session.getAllProjects(), statistics);
+        for (MavenProject project : session.getProjects()) {
+            try {
+                modulePathFiles.write(project);
+            } catch (IOException | UncheckedIOException e) {
+                throw new MavenExecutionException("Error writing Module Path", e);
+            }
+        }
+        statistics.stop(Statistics.Phase.MODULE_PATH_FILES, start);
+    }
+
+    private static Path localRepository(MavenSession session) {
+        File repositoryPath = session.getRequest().getLocalRepositoryPath();
+        if (repositoryPath == null && session.getLocalRepository() != null) {
+            repositoryPath = new File(session.getLocalRepository().getBasedir());
+        }
+        return repositoryPath == null ? null : repositoryPath.toPath().toAbsolutePath();
+    }
+
+    private int stopPrefetch() {
+        if (prefetch == null) {
+            return 0;
+        }
+        int prefetched = prefetch.stop();
+        prefetch = null;
+        return prefetched;
+    }
+
     @Override
-    public void afterSessionEnd(MavenSession session) {}
+    public void afterSessionEnd(MavenSession session) {
+        stopPrefetch();
+        if (preResolution != null) {
+            statistics.add(Statistics.Counter.PRE_RESOLVED_ARTIFACTS, preResolution.stop());
+            preResolution = null;
+        }
+        statistics.add(Statistics.Counter.CACHE_HITS, parseCache.getHits());
+        statistics.add(Statistics.Counter.CACHE_MISSES, parseCache.getMisses());
+        if (ExtensionProperties.getBoolean(session, ExtensionProperties.STATISTICS)) {
+            reportStatistics(session.getRequest().getMultiModuleProjectDirectory());
+        }
+        if (parseCacheFile != null) {
+            LOGGER.info("module-info.java cache: {} hits, {} misses", parseCache.getHits(), parseCache.getMisses());
+            try {
+                parseCache.save(parseCacheFile);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write module-info.java cache: {}", e.getMessage());
+            }
+            parseCacheFile = null;
+        }
+        int evicted = parseCache.evict(cacheMaxEntries);
+        if (evicted > 0) {
+            LOGGER.info(
+                    "module-info.java cache: {} entries evicted ({} in total), {} kept",
+                    evicted,
+                    parseCache.getEvictions(),
+                    parseCache.size());
+        }
+        parseCache.endSession();
+        moduleInfoCache.clear();
+    }
+
+    private void reportStatistics(File rootDirectory) {
+        LOGGER.info("Java Module Dependencies: {}", statistics.summary());
+        Path statisticsFile = rootDirectory.toPath().resolve("target/java-module-dependencies/statistics.json");
+        try {
+            Files.createDirectories(statisticsFile.getParent());
+            Files.write(statisticsFile, statistics.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write statistics: {}", e.getMessage());
+        }
+    }
 }
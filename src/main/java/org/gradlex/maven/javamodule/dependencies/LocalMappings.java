@@ -0,0 +1,69 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mappings defined in '.mvn/modules.properties' of the last build. The file is only read again if its size or
+ * modification time changed, or if it was modified shortly before it was last read.
+ */
+class LocalMappings {
+
+    // Files modified shortly before they were read may change again without a visible change of the timestamp
+    private static final long RACY_MODIFICATION_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    private Path file;
+    private long size;
+    private long lastModified;
+    private long checkedAt;
+    private Map<String, String> mappings = Collections.emptyMap();
+
+    synchronized Map<String, String> load(File root) {
+        Path mappingFile = new File(root, ".mvn/modules.properties").toPath();
+        long currentCheckedAt = System.currentTimeMillis();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(mappingFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long currentLastModified = attributes.lastModifiedTime().toMillis();
+        if (mappingFile.equals(file)
+                && size == attributes.size()
+                && lastModified == currentLastModified
+                && lastModified < checkedAt - RACY_MODIFICATION_MILLIS) {
+            return mappings;
+        }
+
+        Map<String, String> loaded = new LinkedHashMap<>();
+        try (InputStream in = Files.newInputStream(mappingFile)) {
+            Properties p = new Properties();
+            p.load(in);
+            for (String moduleName : p.stringPropertyNames()) {
+                loaded.put(moduleName, p.getProperty(moduleName));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        file = mappingFile;
+        size = attributes.size();
+        lastModified = currentLastModified;
+        checkedAt = currentCheckedAt;
+        mappings = Collections.unmodifiableMap(loaded);
+        return mappings;
+    }
+}
@@ -0,0 +1,154 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Module Names of the projects in the reactor, for builds that only process the selected projects. The module-info.java
+ * files of the other projects are read on demand: when a Module Name is looked up that is not known yet, the project
+ * it most likely belongs to is read first. That is the project matching the mapping of the Module Name, if it has one,
+ * or otherwise the projects whose artifactId is part of the Module Name. Only if none of these declares the Module
+ * Name, all remaining projects are read.
+ */
+class LocalModules {
+
+    private final MavenModuleInfoCache moduleInfoCache;
+    private final Map<String, String> localMappings;
+    private final int threads;
+
+    private final Map<String, MavenProject> projectsByKey = new HashMap<>();
+    private final Set<MavenProject> unread = new LinkedHashSet<>();
+    private final Set<String> located = new HashSet<>();
+
+    LocalModules(
+            MavenModuleInfoCache moduleInfoCache,
+            List<MavenProject> allProjects,
+            Map<String, String> localMappings,
+            int threads) {
+        this.moduleInfoCache = moduleInfoCache;
+        this.localMappings = localMappings;
+        this.threads = threads;
+        for (MavenProject project : allProjects) {
+            projectsByKey.put(key(project.getGroupId(), project.getArtifactId()), project);
+            unread.add(project);
+        }
+    }
+
+    /**
+     * Reads the module-info.java files of the given projects, if that did not happen yet.
+     */
+    void read(List<MavenProject> projects) throws IOException {
+        List<MavenProject> toRead = new ArrayList<>(projects.size());
+        for (MavenProject project : projects) {
+            if (unread.remove(project)) {
+                toRead.add(project);
+            }
+        }
+        moduleInfoCache.putAll(toRead, threads);
+    }
+
+    /**
+     * @return the project of the reactor with the given coordinates or null if there is none
+     */
+    MavenProject project(String groupId, String artifactId) {
+        return projectsByKey.get(key(groupId, artifactId));
+    }
+
+    Map<String, Coordinates> getMainModuleNameToCoordinates() {
+        return new LocatingMap(moduleInfoCache.getMainModuleNameToCoordinates());
+    }
+
+    Map<String, Coordinates> getTestModuleNameToCoordinates() {
+        return new LocatingMap(moduleInfoCache.getTestModuleNameToCoordinates());
+    }
+
+    private void locate(String moduleName) throws IOException {
+        if (unread.isEmpty() || !located.add(moduleName)) {
+            return;
+        }
+        String mapping = localMappings.get(moduleName);
+        if (mapping == null) {
+            mapping = SharedMappings.get(moduleName);
+        }
+        if (mapping != null) {
+            // a Module Name with a mapping is only local if the project with these coordinates is in the reactor
+            Coordinates coordinates = Coordinates.parseMapping(mapping);
+            MavenProject project = project(coordinates.getGroup(), coordinates.getArtifact());
+            if (project != null) {
+                read(Collections.singletonList(project));
+            }
+            return;
+        }
+
+        List<MavenProject> candidates = new ArrayList<>();
+        for (MavenProject project : unread) {
+            if (containsArtifactId(moduleName, project.getArtifactId())) {
+                candidates.add(project);
+            }
+        }
+        read(candidates);
+        if (!isKnown(moduleName)) {
+            read(new ArrayList<>(unread));
+        }
+    }
+
+    private boolean isKnown(String moduleName) {
+        return moduleInfoCache.getMainModuleNameToCoordinates().containsKey(moduleName)
+                || moduleInfoCache.getTestModuleNameToCoordinates().containsKey(moduleName);
+    }
+
+    private static boolean containsArtifactId(String moduleName, String artifactId) {
+        String segments = artifactId.replace('-', '.').replace('_', '.');
+        return moduleName.equals(segments)
+                || moduleName.endsWith("." + segments)
+                || moduleName.startsWith(segments + ".")
+                || moduleName.contains("." + segments + ".");
+    }
+
+    private static String key(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    /**
+     * View of the Module Names registered in the {@link MavenModuleInfoCache} that locates unknown Module Names when
+     * they are looked up. Only {@link #get(Object)} locates Module Names; all other methods only see what was read so
+     * far.
+     */
+    private class LocatingMap extends AbstractMap<String, Coordinates> {
+        private final Map<String, Coordinates> moduleNameToCoordinates;
+
+        private LocatingMap(Map<String, Coordinates> moduleNameToCoordinates) {
+            this.moduleNameToCoordinates = moduleNameToCoordinates;
+        }
+
+        @Override
+        public Coordinates get(Object moduleName) {
+            Coordinates coordinates = moduleNameToCoordinates.get(moduleName);
+            if (coordinates == null && moduleName instanceof String) {
+                try {
+                    locate((String) moduleName);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                coordinates = moduleNameToCoordinates.get(moduleName);
+            }
+            return coordinates;
+        }
+
+        @Override
+        public Set<Entry<String, Coordinates>> entrySet() {
+            return Collections.unmodifiableMap(moduleNameToCoordinates).entrySet();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Module Names of the jars in the local Maven repository, used for Module Names without a mapping. The Module Name of
+ * a jar is taken from its 'module-info.class' (also in 'META-INF/versions' of a multi-release jar) or from the
+ * 'Automatic-Module-Name' in its manifest. Only these entries are read, through the central directory of the jar.
+ * Only the main jar of each artifact version ('artifactId-version.jar') is considered. A Module Name found in jars of
+ * different artifacts is ambiguous and not used.
+ * <p>
+ * The index is kept in '.java-module-dependencies/module-names.txt' of the repository and shared by all builds using
+ * the repository. If a Module Name is not in the index, the repository is searched for new and changed jars, at most
+ * once per build. This happens under a file lock, starting from the index as the last build left it, so that builds
+ * running at the same time do not undo each other's updates. Jars that did not change (size and modification time)
+ * are not read again. Version directories that already contain indexed jars and were not modified since the last
+ * search are not listed again, because Maven adds and replaces files in the repository by moving them there.
+ */
+class LocalRepositoryIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalRepositoryIndex.class);
+
+    private static final String HEADER = "# Module Names of jars in the local repository - format 1";
+    private static final String NO_MODULE_NAME = "-";
+    private static final String AMBIGUOUS = "";
+    private static final String SCANNED = "scanned";
+    // coarsest modification time resolution of common file systems
+    private static final long TIMESTAMP_RESOLUTION_MILLIS = 2000;
+
+    private final Path repository;
+    private final Path indexFile;
+    private final Path lockFile;
+
+    // relative path of jar -> entry
+    private Map<String, Jar> jars = new HashMap<>();
+    // Module Name -> 'group:artifact' or AMBIGUOUS
+    private Map<String, String> moduleNameToGA = new HashMap<>();
+    // directories modified before this time were searched completely
+    private long scanned = -1;
+    private long indexFileSize = -1;
+    private long indexFileLastModified = -1;
+    private boolean updatedInThisBuild;
+
+    LocalRepositoryIndex(Path repository) {
+        this.repository = repository;
+        this.indexFile = repository.resolve(".java-module-dependencies/module-names.txt");
+        this.lockFile = repository.resolve(".java-module-dependencies/module-names.lock");
+    }
+
+    Path getRepository() {
+        return repository;
+    }
+
+    /**
+     * @return size and modification time of the index file, which change whenever a build updates the index
+     */
+    String getState() throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(indexFile, BasicFileAttributes.class);
+            return attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return "none";
+        }
+    }
+
+    /**
+     * Allows searching the repository for new jars again.
+     */
+    synchronized void startBuild() {
+        updatedInThisBuild = false;
+    }
+
+    /**
+     * @return 'group:artifact' of the jar with the given Module Name or null if there is none or more than one
+     */
+    synchronized String get(String moduleName, Statistics statistics) {
+        long start = System.nanoTime();
+        try {
+            loadIfChanged();
+            if (!moduleNameToGA.containsKey(moduleName) && !updatedInThisBuild) {
+                updatedInThisBuild = true;
+                update(moduleName);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not update module name index of local repository: {}", e.getMessage());
+        } finally {
+            statistics.stop(Statistics.Phase.REPOSITORY_INDEX, start);
+        }
+        String ga = moduleNameToGA.get(moduleName);
+        if (AMBIGUOUS.equals(ga)) {
+            LOGGER.debug("Module Name found in jars of several artifacts in local repository: {}", moduleName);
+            return null;
+        }
+        return ga;
+    }
+
+    private void loadIfChanged() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(indexFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (attributes.size() == indexFileSize && attributes.lastModifiedTime().toMillis() == indexFileLastModified) {
+            return;
+        }
+        read();
+        moduleNameToGA = moduleNames(jars);
+        indexFileSize = attributes.size();
+        indexFileLastModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    private void read() throws IOException {
+        jars = new HashMap<>();
+        scanned = -1;
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return; // other format, build again
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t");
+                if (columns.length == 4) {
+                    String moduleName = columns[3].equals(NO_MODULE_NAME) ? null : columns[3];
+                    jars.put(columns[0], new Jar(Long.parseLong(columns[1]), Long.parseLong(columns[2]), moduleName));
+                } else if (columns.length == 2 && columns[0].equals(SCANNED)) {
+                    scanned = Long.parseLong(columns[1]);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // not created yet
+        } catch (RuntimeException e) {
+            LOGGER.debug("Ignoring corrupted module name index: {}", indexFile, e);
+        }
+    }
+
+    /**
+     * Updates the index under the file lock, unless another build added the Module Name while waiting for the lock.
+     */
+    private void update(String moduleName) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock(); // other builds using the same repository wait
+            try {
+                loadIfChanged();
+                if (!moduleNameToGA.containsKey(moduleName)) {
+                    scan();
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Searches the repository for jars and reads the Module Names of the new and changed ones in parallel.
+     */
+    private void scan() throws IOException {
+        long scanStart = System.currentTimeMillis() - TIMESTAMP_RESOLUTION_MILLIS;
+        Map<String, List<String>> knownJarsByDirectory = new HashMap<>();
+        for (String jar : jars.keySet()) {
+            String directory = jar.substring(0, jar.lastIndexOf('/'));
+            knownJarsByDirectory.computeIfAbsent(directory, d -> new ArrayList<>()).add(jar);
+        }
+        Map<String, BasicFileAttributes> found = new TreeMap<>();
+        Map<String, Jar> updated = new HashMap<>();
+        Files.walkFileTree(repository, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (dir.equals(repository)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                List<String> knownJars =
+                        knownJarsByDirectory.get(repository.relativize(dir).toString().replace('\\', '/'));
+                if (knownJars != null && attributes.lastModifiedTime().toMillis() < scanned) {
+                    for (String jar : knownJars) {
+                        updated.put(jar, jars.get(jar));
+                    }
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String relativePath = repository.relativize(file).toString().replace('\\', '/');
+                if (toGA(relativePath) != null) {
+                    found.put(relativePath, attributes);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        int unchangedDirectoryJars = updated.size();
+        Map<String, Future<String>> toRead = new HashMap<>();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory());
+        try {
+            for (Map.Entry<String, BasicFileAttributes> jar : found.entrySet()) {
+                long size = jar.getValue().size();
+                long lastModified = jar.getValue().lastModifiedTime().toMillis();
+                Jar known = jars.get(jar.getKey());
+                if (known != null && known.size == size && known.lastModified == lastModified) {
+                    updated.put(jar.getKey(), known);
+                } else {
+                    Path file = repository.resolve(jar.getKey());
+                    toRead.put(jar.getKey(), executor.submit(() -> readModuleName(file)));
+                    updated.put(jar.getKey(), new Jar(size, lastModified, null));
+                }
+            }
+            for (Map.Entry<String, Future<String>> read : toRead.entrySet()) {
+                Jar jar = updated.get(read.getKey());
+                updated.put(read.getKey(), new Jar(jar.size, jar.lastModified, read.getValue().get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading jars of local repository");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        boolean changed = !toRead.isEmpty() || updated.size() != jars.size();
+        jars = updated;
+        moduleNameToGA = moduleNames(updated);
+        if (changed) {
+            scanned = scanStart;
+            write();
+        }
+        LOGGER.debug(
+                "Module name index of local repository: {} jars, {} in unchanged directories, {} read",
+                updated.size(),
+                unchangedDirectoryJars,
+                toRead.size());
+    }
+
+    private void write() throws IOException {
+        writeIndexFile();
+        BasicFileAttributes attributes = Files.readAttributes(indexFile, BasicFileAttributes.class);
+        indexFileSize = attributes.size();
+        indexFileLastModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    private void writeIndexFile() throws IOException {
+        Path tmpFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, UTF_8)) {
+                writer.write(HEADER + "\n");
+                writer.write(SCANNED + "\t" + scanned + "\n");
+                for (Map.Entry<String, Jar> jar : new TreeMap<>(jars).entrySet()) {
+                    String moduleName = jar.getValue().moduleName;
+                    writer.write(jar.getKey() + "\t" + jar.getValue().size + "\t" + jar.getValue().lastModified + "\t"
+                            + (moduleName == null ? NO_MODULE_NAME : moduleName) + "\n");
+                }
+            }
+            try {
+                Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static Map<String, String> moduleNames(Map<String, Jar> jars) {
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Jar> jar : jars.entrySet()) {
+            String moduleName = jar.getValue().moduleName;
+            if (moduleName != null) {
+                String ga = toGA(jar.getKey());
+                String existing = result.putIfAbsent(moduleName, ga);
+                if (existing != null && !existing.equals(ga)) {
+                    result.put(moduleName, AMBIGUOUS);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param relativePath 'group/path/artifact/version/artifact-version.jar'
+     * @return 'group:artifact' or null if the path is not the main jar of an artifact version
+     */
+    static String toGA(String relativePath) {
+        String[] segments = relativePath.split("/");
+        if (segments.length < 4) {
+            return null;
+        }
+        String artifact = segments[segments.length - 3];
+        String version = segments[segments.length - 2];
+        if (!segments[segments.length - 1].equals(artifact + "-" + version + ".jar")) {
+            return null;
+        }
+        List<String> group = new ArrayList<>();
+        for (int i = 0; i < segments.length - 3; i++) {
+            group.add(segments[i]);
+        }
+        return String.join(".", group) + ":" + artifact;
+    }
+
+    /**
+     * @return the Module Name of the jar or null if it is not a module and has no 'Automatic-Module-Name'
+     */
+    static String readModuleName(Path jar) {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            ZipEntry moduleInfo = zip.getEntry("module-info.class");
+            Manifest manifest = null;
+            if (moduleInfo == null) {
+                ZipEntry manifestEntry = zip.getEntry("META-INF/MANIFEST.MF");
+                if (manifestEntry != null) {
+                    try (InputStream in = zip.getInputStream(manifestEntry)) {
+                        manifest = new Manifest(in);
+                    }
+                }
+                if (manifest != null && "true".equalsIgnoreCase(attribute(manifest, "Multi-Release"))) {
+                    for (int release = 9; release <= Runtime.version().feature() && moduleInfo == null; release++) {
+                        moduleInfo = zip.getEntry("META-INF/versions/" + release + "/module-info.class");
+                    }
+                }
+            }
+            if (moduleInfo != null) {
+                try (InputStream in = zip.getInputStream(moduleInfo)) {
+                    return ModuleDescriptor.read(in).name();
+                }
+            }
+            return manifest == null ? null : attribute(manifest, "Automatic-Module-Name");
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read Module Name of {}", jar, e);
+            return null;
+        }
+    }
+
+    private static String attribute(Manifest manifest, String name) {
+        String value = manifest.getMainAttributes().getValue(new Attributes.Name(name));
+        return value == null ? null : value.trim();
+    }
+
+    private static class Jar {
+        private final long size;
+        private final long lastModified;
+        private final String moduleName; // null if the jar has none
+
+        private Jar(long size, long lastModified, String moduleName) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.moduleName = moduleName;
+        }
+    }
+}
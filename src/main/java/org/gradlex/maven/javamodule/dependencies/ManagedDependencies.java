@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.maven.model.Dependency;
+
+/**
+ * Entries of 'dependencyManagement' sections indexed by groupId and artifactId. If the same artifact is managed more
+ * than once, the first entry in the list wins - as when searching the list from the start. The entries of a project
+ * are layered on top of the (shared) instance of its parent, which is only searched if the project itself does not
+ * manage an artifact. Entries that define the same version as the parent are not added to the layer. If no entry
+ * remains, the project can use the parent instance itself ({@link #isEmpty()}).
+ */
+class ManagedDependencies {
+
+    private final ManagedDependencies parent;
+    private final Map<String, Map<String, Dependency>> byGroupAndArtifact = new HashMap<>();
+
+    ManagedDependencies(List<Dependency> managed) {
+        this(null, managed);
+    }
+
+    ManagedDependencies(ManagedDependencies parent, List<Dependency> managed) {
+        this.parent = parent;
+        for (Dependency dependency : managed) {
+            Map<String, Dependency> artifacts =
+                    byGroupAndArtifact.computeIfAbsent(dependency.getGroupId(), g -> new HashMap<>());
+            if (!artifacts.containsKey(dependency.getArtifactId())) {
+                // placeholder for inherited entries, so that later entries for the same artifact do not win
+                artifacts.put(dependency.getArtifactId(), isInherited(dependency) ? null : dependency);
+            }
+        }
+        byGroupAndArtifact.values().removeIf(artifacts -> {
+            artifacts.values().removeIf(Objects::isNull);
+            return artifacts.isEmpty();
+        });
+    }
+
+    ManagedDependencies getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the entries of this instance, without the entries of the parent
+     */
+    List<Dependency> getEntries() {
+        List<Dependency> entries = new ArrayList<>();
+        for (Map<String, Dependency> artifacts : byGroupAndArtifact.values()) {
+            entries.addAll(artifacts.values());
+        }
+        return entries;
+    }
+
+    boolean isEmpty() {
+        return byGroupAndArtifact.isEmpty();
+    }
+
+    private boolean isInherited(Dependency dependency) {
+        if (parent == null) {
+            return false;
+        }
+        Dependency inherited = parent.find(dependency.getGroupId(), dependency.getArtifactId());
+        return inherited != null && Objects.equals(inherited.getVersion(), dependency.getVersion());
+    }
+
+    /**
+     * @return the managed entry or null, if the artifact is not managed
+     */
+    Dependency find(String group, String artifact) {
+        Map<String, Dependency> artifacts = byGroupAndArtifact.get(group);
+        Dependency dependency = artifacts == null ? null : artifacts.get(artifact);
+        if (dependency == null && parent != null) {
+            return parent.find(group, artifact);
+        }
+        return dependency;
+    }
+}
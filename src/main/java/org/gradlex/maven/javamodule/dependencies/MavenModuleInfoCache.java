@@ -5,73 +5,225 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.maven.project.MavenProject;
 import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
 
 public class MavenModuleInfoCache {
-    private final Map<String, ModuleInfo> mainModuleInfos = new HashMap<>();
-    private final Map<String, ModuleInfo> testModuleInfos = new HashMap<>();
+    // the parsed module-info.java files are attached to the project they belong to
+    private static final String MAIN_MODULE_INFO = MavenModuleInfoCache.class.getName() + ".main";
+    private static final String TEST_MODULE_INFO = MavenModuleInfoCache.class.getName() + ".test";
+    private static final String READ = MavenModuleInfoCache.class.getName() + ".read";
 
-    private final Map<String, String> mainModuleNameToCoordinates = new HashMap<>();
-    private final Map<String, String> testModuleNameToCoordinates = new HashMap<>();
+    private final Map<String, Coordinates> mainModuleNameToCoordinates = new ConcurrentHashMap<>();
+    private final Map<String, Coordinates> testModuleNameToCoordinates = new ConcurrentHashMap<>();
+
+    private ModuleInfoParseCache parseCache;
+    private Statistics statistics = new Statistics();
+
+    /**
+     * @param parseCache persistent parse results to consult before parsing a file, or null to always parse
+     */
+    void setParseCache(ModuleInfoParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * @param statistics where to record the work done for reading module-info.java files
+     */
+    void setStatistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
 
     public void put(MavenProject project) throws IOException {
-        List<String> compileSourceRoots = project.getCompileSourceRoots();
+        register(project, read(project));
+    }
+
+    /**
+     * Reads the module-info.java files of all projects using the given number of threads. The results are registered
+     * in the order of the given list, so that they do not depend on the number of threads. If reading fails for one of
+     * the projects, the remaining work is cancelled and the first error is thrown.
+     */
+    public void putAll(List<MavenProject> projects, int threads) throws IOException {
+        if (threads <= 1 || projects.size() <= 1) {
+            for (MavenProject project : projects) {
+                put(project);
+            }
+            return;
+        }
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(threads, projects.size()), new DaemonThreadFactory());
+        try {
+            CompletionService<ProjectModuleInfos> completionService = new ExecutorCompletionService<>(executor);
+            List<Future<ProjectModuleInfos>> results = new ArrayList<>(projects.size());
+            for (MavenProject project : projects) {
+                results.add(completionService.submit(() -> read(project)));
+            }
+            for (int i = 0; i < projects.size(); i++) {
+                completionService.take().get(); // fail fast on the first error
+            }
+            for (int i = 0; i < projects.size(); i++) {
+                register(projects.get(i), results.get(i).get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading module-info.java files");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ProjectModuleInfos read(MavenProject project) throws IOException {
+        long start = System.nanoTime();
+        Optional<File> mainModuleInfo = findMainModuleInfo(project);
+        Optional<File> testModuleInfo = findTestModuleInfo(project);
+        statistics.stop(Statistics.Phase.DISCOVERY, start);
+
+        return new ProjectModuleInfos(
+                mainModuleInfo.isPresent() ? parse(mainModuleInfo.get()) : null,
+                testModuleInfo.isPresent() ? parse(testModuleInfo.get()) : null);
+    }
+
+    Optional<File> findMainModuleInfo(MavenProject project) {
+        return project.getCompileSourceRoots().stream()
+                .map(src -> new File(src, "module-info.java"))
+                .filter(this::exists)
+                .findFirst();
+    }
+
+    Optional<File> findTestModuleInfo(MavenProject project) {
         List<String> testCompileSourceRoots = project.getTestCompileSourceRoots();
         List<String> altTestCompileSourceRoots = project.getTestCompileSourceRoots().stream()
                 .map(location -> location + "9")
                 .collect(Collectors.toList());
-
-        Optional<File> mainModuleInfo = compileSourceRoots.stream()
+        return Stream.concat(testCompileSourceRoots.stream(), altTestCompileSourceRoots.stream())
                 .map(src -> new File(src, "module-info.java"))
-                .filter(File::exists)
-                .findFirst();
-        Optional<File> testModuleInfo = Stream.concat(
-                        testCompileSourceRoots.stream(), altTestCompileSourceRoots.stream())
-                .map(src -> new File(src, "module-info.java"))
-                .filter(File::exists)
+                .filter(this::exists)
                 .findFirst();
+    }
 
-        if (mainModuleInfo.isPresent()) {
-            String content = new String(Files.readAllBytes(mainModuleInfo.get().toPath()), UTF_8);
+    private boolean exists(File file) {
+        statistics.increment(Statistics.Counter.FILE_PROBES);
+        return file.exists();
+    }
+
+    private ModuleInfo parse(File moduleInfoFile) throws IOException {
+        statistics.increment(Statistics.Counter.MODULE_INFO_FILES);
+        try {
+            if (parseCache != null) {
+                return parseCache.parse(moduleInfoFile, statistics);
+            }
+            long start = System.nanoTime();
+            String content = new String(Files.readAllBytes(moduleInfoFile.toPath()), UTF_8);
+            statistics.stop(Statistics.Phase.READ, start);
+            start = System.nanoTime();
             ModuleInfo moduleInfo = new ModuleInfo(content);
-            mainModuleInfos.put(toCoordinates(project), moduleInfo);
-            mainModuleNameToCoordinates.put(
-                    moduleInfo.getModuleName(), toCoordinates(project) + ":" + project.getVersion());
+            statistics.stop(Statistics.Phase.PARSE, start);
+            return moduleInfo;
+        } catch (FileSystemException e) {
+            throw e;
+        } catch (IOException e) {
+            // errors like 'Is a directory' do not tell which of the files could not be read
+            FileSystemException withFile = new FileSystemException(moduleInfoFile.getPath(), null, e.getMessage());
+            withFile.initCause(e);
+            throw withFile;
         }
-        if (testModuleInfo.isPresent()) {
-            String content = new String(Files.readAllBytes(testModuleInfo.get().toPath()), UTF_8);
-            ModuleInfo moduleInfo = new ModuleInfo(content);
-            testModuleInfos.put(toCoordinates(project), moduleInfo);
-            testModuleNameToCoordinates.put(
-                    moduleInfo.getModuleName(), toCoordinates(project) + ":" + project.getVersion());
+    }
+
+    private void register(MavenProject project, ProjectModuleInfos moduleInfos) {
+        Coordinates coordinates = Coordinates.of(project);
+        project.setContextValue(READ, Boolean.TRUE);
+        if (moduleInfos.main != null) {
+            project.setContextValue(MAIN_MODULE_INFO, moduleInfos.main);
+            mainModuleNameToCoordinates.put(moduleInfos.main.getModuleName(), coordinates);
+        }
+        if (moduleInfos.test != null) {
+            project.setContextValue(TEST_MODULE_INFO, moduleInfos.test);
+            testModuleNameToCoordinates.put(moduleInfos.test.getModuleName(), coordinates);
         }
     }
 
-    public Map<String, String> getMainModuleNameToCoordinates() {
+    public Map<String, Coordinates> getMainModuleNameToCoordinates() {
         return mainModuleNameToCoordinates;
     }
 
-    public Map<String, String> getTestModuleNameToCoordinates() {
+    public Map<String, Coordinates> getTestModuleNameToCoordinates() {
         return testModuleNameToCoordinates;
     }
 
+    /**
+     * Forgets the Module Names of the projects of the current build.
+     */
+    public void clear() {
+        mainModuleNameToCoordinates.clear();
+        testModuleNameToCoordinates.clear();
+    }
+
+    /**
+     * Reads the module-info.java files of the project if that did not happen yet, e.g. because the dependencies were
+     * taken from the lock file.
+     */
     public ModuleInfo getMain(MavenProject project) {
-        return mainModuleInfos.getOrDefault(toCoordinates(project), ModuleInfo.EMPTY);
+        readIfNeeded(project);
+        ModuleInfo moduleInfo = (ModuleInfo) project.getContextValue(MAIN_MODULE_INFO);
+        return moduleInfo == null ? ModuleInfo.EMPTY : moduleInfo;
     }
 
+    /**
+     * @see #getMain(MavenProject)
+     */
     public ModuleInfo getTest(MavenProject project) {
-        return testModuleInfos.getOrDefault(toCoordinates(project), ModuleInfo.EMPTY);
+        readIfNeeded(project);
+        ModuleInfo moduleInfo = (ModuleInfo) project.getContextValue(TEST_MODULE_INFO);
+        return moduleInfo == null ? ModuleInfo.EMPTY : moduleInfo;
     }
 
-    private String toCoordinates(MavenProject project) {
-        return project.getGroupId() + ":" + project.getArtifactId();
+    private void readIfNeeded(MavenProject project) {
+        if (project.getContextValue(READ) == null) {
+            try {
+                put(project);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class ProjectModuleInfos {
+        private final ModuleInfo main;
+        private final ModuleInfo test;
+
+        private ProjectModuleInfos(ModuleInfo main, ModuleInfo test) {
+            this.main = main;
+            this.test = test;
+        }
     }
 }
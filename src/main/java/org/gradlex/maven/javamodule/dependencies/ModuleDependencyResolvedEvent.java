@@ -0,0 +1,43 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for turning a 'requires' directive into a dependency. Recorded if Maven runs with a flight
+ * recording, e.g. 'MAVEN_OPTS=-XX:StartFlightRecording'.
+ */
+@Name("org.gradlex.maven.javamodule.dependencies.ModuleDependencyResolved")
+@Label("Module Dependency Resolved")
+@Category({"Maven", "Java Module Dependencies"})
+@Description("A required Module Name was resolved to a dependency, or skipped")
+class ModuleDependencyResolvedEvent extends Event {
+
+    static final String JDK = "jdk";
+    static final String SELF = "self";
+    static final String LOCAL = "local";
+    static final String LOCAL_TEST = "local-test";
+    static final String LOCAL_MAPPING = "local-mapping";
+    static final String SHARED_MAPPING = "shared-mapping";
+    static final String REPOSITORY_INDEX = "repository-index";
+    static final String MISSING_MAPPING = "missing-mapping";
+    static final String MISSING_VERSION = "missing-version";
+
+    @Label("Project")
+    String project;
+
+    @Label("Module Name")
+    String moduleName;
+
+    @Label("Scope")
+    String scope;
+
+    @Label("Source")
+    @Description("Where the Module Name was found: jdk, self, local, local-test, local-mapping, shared-mapping, "
+            + "repository-index, missing-mapping or missing-version")
+    String source;
+}
@@ -0,0 +1,313 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Dependencies between the projects of the reactor, after the dependencies for the module-info.java files were added.
+ * An edge exists if a project depends on another project of the reactor (in any scope, as Maven builds a project with
+ * its tests as one unit) or if the other project is its parent. As in Maven, a dependency on another version of a
+ * project of the reactor (e.g. a released version) is not an edge. The depth of a project is the number of projects on
+ * the longest path to a project without dependencies in the reactor (which has depth 1). The projects on the longest
+ * path overall (critical path) have to be built one after the other, regardless of the number of threads ('-T').
+ */
+class ModuleGraph {
+
+    private final List<MavenProject> projects;
+    private final Function<MavenProject, String> names;
+    private final Map<MavenProject, List<MavenProject>> dependencies = new IdentityHashMap<>();
+    private Map<MavenProject, Integer> depths;
+
+    /**
+     * @param names the name of a project in messages, e.g. its Module Name
+     */
+    ModuleGraph(List<MavenProject> projects, Function<MavenProject, String> names) {
+        this.projects = projects;
+        this.names = names;
+        Map<String, Map<String, MavenProject>> projectsByKey = new HashMap<>();
+        for (MavenProject project : projects) {
+            projectsByKey
+                    .computeIfAbsent(project.getGroupId() + ":" + project.getArtifactId(), k -> new HashMap<>())
+                    .put(project.getVersion(), project);
+        }
+        for (MavenProject project : projects) {
+            Set<MavenProject> projectDependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<MavenProject> ordered = new ArrayList<>();
+            for (Dependency dependency : project.getDependencies()) {
+                for (MavenProject other : find(
+                        projectsByKey, dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())) {
+                    if (other != project && projectDependencies.add(other)) {
+                        ordered.add(other);
+                    }
+                }
+            }
+            MavenProject parent = project.getParent();
+            if (parent != null) {
+                for (MavenProject other :
+                        find(projectsByKey, parent.getGroupId(), parent.getArtifactId(), parent.getVersion())) {
+                    if (projectDependencies.add(other)) {
+                        ordered.add(other);
+                    }
+                }
+            }
+            dependencies.put(project, ordered);
+        }
+    }
+
+    /**
+     * Like Maven's 'ProjectSorter', a dependency only points to a project of the reactor if the versions are equal. A
+     * dependency without version or with a version range points to all versions of the project in the reactor.
+     */
+    private static Collection<MavenProject> find(
+            Map<String, Map<String, MavenProject>> projectsByKey, String groupId, String artifactId, String version) {
+        Map<String, MavenProject> versions = projectsByKey.get(groupId + ":" + artifactId);
+        if (versions == null) {
+            return Collections.emptyList();
+        }
+        if (version == null || version.startsWith("[") || version.startsWith("(")) {
+            return versions.values();
+        }
+        MavenProject project = versions.get(version);
+        return project == null ? Collections.emptyList() : Collections.singletonList(project);
+    }
+
+    int getEdgeCount() {
+        int count = 0;
+        for (List<MavenProject> projectDependencies : dependencies.values()) {
+            count += projectDependencies.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the given projects and all projects that depend on them, directly or through other projects, in reactor
+     *     order
+     */
+    List<MavenProject> getDependents(Collection<MavenProject> changed) {
+        Map<MavenProject, List<MavenProject>> dependents = dependents();
+        Set<MavenProject> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<MavenProject> queue = new ArrayDeque<>(changed);
+        while (!queue.isEmpty()) {
+            MavenProject project = queue.poll();
+            if (affected.add(project)) {
+                queue.addAll(dependents.getOrDefault(project, Collections.emptyList()));
+            }
+        }
+        List<MavenProject> result = new ArrayList<>();
+        for (MavenProject project : projects) {
+            if (affected.contains(project)) {
+                result.add(project);
+            }
+        }
+        return result;
+    }
+
+    private Map<MavenProject, List<MavenProject>> dependents() {
+        Map<MavenProject, List<MavenProject>> dependents = new IdentityHashMap<>();
+        for (MavenProject project : projects) {
+            for (MavenProject dependency : dependencies.get(project)) {
+                dependents.computeIfAbsent(dependency, p -> new ArrayList<>()).add(project);
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Depth-first search with an explicit stack, as chains of dependencies can be longer than the call stack allows.
+     *
+     * @return the projects of a cycle, starting and ending with the same project, or an empty list if there is none
+     */
+    List<MavenProject> findCycle() {
+        Map<MavenProject, Boolean> visited = new IdentityHashMap<>(); // false: on the current path, true: done
+        List<MavenProject> path = new ArrayList<>();
+        Deque<Iterator<MavenProject>> remaining = new ArrayDeque<>(); // dependencies not visited yet, per path entry
+        for (MavenProject project : projects) {
+            if (visited.containsKey(project)) {
+                continue;
+            }
+            visited.put(project, false);
+            path.add(project);
+            remaining.push(dependencies.get(project).iterator());
+            while (!remaining.isEmpty()) {
+                Iterator<MavenProject> next = remaining.peek();
+                if (!next.hasNext()) {
+                    remaining.pop();
+                    visited.put(path.remove(path.size() - 1), true);
+                    continue;
+                }
+                MavenProject dependency = next.next();
+                Boolean done = visited.get(dependency);
+                if (done == null) {
+                    visited.put(dependency, false);
+                    path.add(dependency);
+                    remaining.push(dependencies.get(dependency).iterator());
+                } else if (!done) {
+                    List<MavenProject> cycle = new ArrayList<>(path.subList(path.indexOf(dependency), path.size()));
+                    cycle.add(dependency);
+                    return cycle;
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the depth of the given project; the graph must not contain a cycle
+     */
+    int getDepth(MavenProject project) {
+        if (depths == null) {
+            depths = computeDepths();
+        }
+        return depths.get(project);
+    }
+
+    /**
+     * Visits the projects in topological order, so that the depths of all dependencies of a project are known before
+     * its own depth is computed.
+     */
+    private Map<MavenProject, Integer> computeDepths() {
+        Map<MavenProject, List<MavenProject>> dependents = dependents();
+        Map<MavenProject, Integer> open = new IdentityHashMap<>(); // number of dependencies without a depth yet
+        Deque<MavenProject> ready = new ArrayDeque<>();
+        for (MavenProject project : projects) {
+            int count = dependencies.get(project).size();
+            open.put(project, count);
+            if (count == 0) {
+                ready.add(project);
+            }
+        }
+        Map<MavenProject, Integer> result = new IdentityHashMap<>();
+        while (!ready.isEmpty()) {
+            MavenProject project = ready.poll();
+            int max = 0;
+            for (MavenProject dependency : dependencies.get(project)) {
+                max = Math.max(max, result.get(dependency));
+            }
+            result.put(project, max + 1);
+            for (MavenProject dependent : dependents.getOrDefault(project, Collections.emptyList())) {
+                if (open.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the projects on the longest path, starting with a project without dependencies in the reactor
+     */
+    List<MavenProject> getCriticalPath() {
+        MavenProject last = null;
+        for (MavenProject project : projects) {
+            if (last == null || getDepth(project) > getDepth(last)) {
+                last = project;
+            }
+        }
+        List<MavenProject> path = new ArrayList<>();
+        while (last != null) {
+            path.add(0, last);
+            MavenProject next = null;
+            for (MavenProject dependency : dependencies.get(last)) {
+                if (getDepth(dependency) == getDepth(last) - 1) {
+                    next = dependency;
+                    break;
+                }
+            }
+            last = next;
+        }
+        return path;
+    }
+
+    /**
+     * Describes how many projects can be built in parallel and which projects serialize the build. A project that is
+     * the only one of its depth has to be finished before any project with a greater depth can start.
+     *
+     * @param maxListed maximum number of projects listed for the critical path and for the serializing projects
+     */
+    String report(int maxListed) {
+        List<MavenProject> criticalPath = getCriticalPath();
+        Map<Integer, List<MavenProject>> byDepth = new HashMap<>();
+        for (MavenProject project : projects) {
+            byDepth.computeIfAbsent(getDepth(project), d -> new ArrayList<>()).add(project);
+        }
+        int widest = 0;
+        List<String> serializing = new ArrayList<>();
+        for (int depth = 1; depth <= criticalPath.size(); depth++) {
+            List<MavenProject> atDepth = byDepth.get(depth);
+            widest = Math.max(widest, atDepth.size());
+            if (atDepth.size() == 1) {
+                serializing.add(depth + ": " + names.apply(atDepth.get(0)));
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(
+                Locale.ROOT,
+                "%d projects, %d dependencies between them (including parents)%n",
+                projects.size(),
+                getEdgeCount()));
+        report.append(String.format(
+                Locale.ROOT,
+                "Parallelism (-T): at most %d projects at the same depth, %.1f on average with unlimited threads%n",
+                widest,
+                criticalPath.isEmpty() ? 0.0 : (double) projects.size() / criticalPath.size()));
+        report.append("Critical path (")
+                .append(criticalPath.size())
+                .append(" projects): ")
+                .append(list(names(criticalPath), " -> ", maxListed))
+                .append(System.lineSeparator());
+        report.append("Depths with a single project: ")
+                .append(serializing.isEmpty() ? "none" : list(serializing, ", ", maxListed))
+                .append(System.lineSeparator());
+        return report.toString();
+    }
+
+    private static String list(List<String> items, String separator, int maxListed) {
+        if (items.size() <= maxListed) {
+            return String.join(separator, items);
+        }
+        return String.join(separator, items.subList(0, maxListed)) + " ... (" + (items.size() - maxListed) + " more)";
+    }
+
+    /**
+     * @return all projects with their depth, one per line, ordered by depth
+     */
+    String depths() {
+        List<MavenProject> sorted = new ArrayList<>(projects);
+        sorted.sort((a, b) -> Integer.compare(getDepth(a), getDepth(b)));
+        StringBuilder result = new StringBuilder();
+        for (MavenProject project : sorted) {
+            result.append(getDepth(project))
+                    .append('\t')
+                    .append(names.apply(project))
+                    .append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+
+    String join(List<MavenProject> path) {
+        return String.join(" -> ", names(path));
+    }
+
+    private List<String> names(List<MavenProject> path) {
+        List<String> pathNames = new ArrayList<>(path.size());
+        for (MavenProject project : path) {
+            pathNames.add(names.apply(project));
+        }
+        return pathNames;
+    }
+}
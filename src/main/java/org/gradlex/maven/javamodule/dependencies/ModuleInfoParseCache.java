@@ -0,0 +1,336 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parse results of module-info.java files. The cache is kept in memory for as long as the extension is loaded, which
+ * spans several builds if Maven runs as a daemon, and can be persisted between builds in a compact binary file. An
+ * entry is reused without reading the file if size and modification time did not change. Otherwise, the file is read
+ * and only parsed again if its content hash changed. Entries that were not used for the longest time are evicted
+ * once the cache holds more than a given number of entries.
+ */
+class ModuleInfoParseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleInfoParseCache.class);
+
+    private static final int MAGIC = 0x4A4D4943; // JMIC
+    private static final int FORMAT_VERSION = 2;
+
+    // Files modified shortly before they were checked may change again without a visible change of the timestamp
+    private static final long RACY_MODIFICATION_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // paths of the entries in the cache files loaded or saved so far
+    private final Map<Path, Set<String>> persisted = new ConcurrentHashMap<>();
+    // cache files that still contain evicted entries
+    private final Set<Path> stale = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger evictions = new AtomicInteger();
+    private volatile int session;
+
+    // state of the current build
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private volatile boolean changed;
+
+    /**
+     * Adds the entries of the given file to the cache, unless the file was already loaded or saved before. A missing,
+     * outdated or corrupted file is ignored.
+     */
+    void load(Path cacheFile) {
+        if (persisted.containsKey(cacheFile)) {
+            return;
+        }
+        Set<String> paths = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = in.readUTF();
+                    long size = in.readLong();
+                    long lastModified = in.readLong();
+                    long checkedAt = in.readLong();
+                    byte[] hash = new byte[in.readUnsignedByte()];
+                    in.readFully(hash);
+                    entries.putIfAbsent(
+                            path, new Entry(size, lastModified, checkedAt, hash, ModuleInfo.readFrom(in), session));
+                    paths.add(path);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // nothing persisted yet
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Ignoring unreadable module-info.java cache: {}", cacheFile, e);
+        }
+        persisted.put(cacheFile, paths);
+    }
+
+    ModuleInfo parse(File moduleInfoFile, Statistics statistics) throws IOException {
+        ModuleInfoParsedEvent event = FlightRecording.isRunning() ? new ModuleInfoParsedEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        Entry entry = parse(moduleInfoFile, statistics, event);
+        if (event != null && event.shouldCommit()) {
+            event.path = moduleInfoFile.getPath();
+            event.bytes = entry.size;
+            event.directives = entry.moduleInfo.getDirectiveCount();
+            event.commit();
+        }
+        return entry.moduleInfo;
+    }
+
+    /**
+     * Parses the given file ahead of time, if it is not in the cache or changed. In contrast to
+     * {@link #parse(File, Statistics)}, this does not count as a use of the file in the current build.
+     */
+    void prefetch(File moduleInfoFile, Statistics statistics) throws IOException {
+        parse(moduleInfoFile, statistics, null, true);
+    }
+
+    private Entry parse(File moduleInfoFile, Statistics statistics, ModuleInfoParsedEvent event) throws IOException {
+        return parse(moduleInfoFile, statistics, event, false);
+    }
+
+    private Entry parse(File moduleInfoFile, Statistics statistics, ModuleInfoParsedEvent event, boolean prefetch)
+            throws IOException {
+        Path file = moduleInfoFile.toPath();
+        String path = moduleInfoFile.getAbsolutePath();
+        long checkedAt = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        // prefetched files only count as used (and hit or miss) once the build itself parses them
+        if (!prefetch) {
+            used.add(path);
+        }
+
+        Entry entry = entries.get(path);
+        if (entry != null
+                && entry.size == size
+                && entry.lastModified == lastModified
+                && lastModified < entry.checkedAt - RACY_MODIFICATION_NANOS) {
+            if (!prefetch) {
+                hits.incrementAndGet();
+                entry.lastUsedSession = session;
+            }
+            if (event != null) {
+                event.cached = true;
+            }
+            return entry;
+        }
+
+        long start = System.nanoTime();
+        byte[] content = Files.readAllBytes(file);
+        byte[] hash = hash(content);
+        statistics.stop(Statistics.Phase.READ, start);
+        changed = true;
+        if (entry != null && Arrays.equals(entry.hash, hash)) {
+            if (!prefetch) {
+                hits.incrementAndGet();
+            }
+            Entry refreshed = new Entry(size, lastModified, checkedAt, hash, entry.moduleInfo, session);
+            entries.put(path, refreshed);
+            if (event != null) {
+                event.cached = true;
+            }
+            return refreshed;
+        }
+
+        if (!prefetch) {
+            misses.incrementAndGet();
+        }
+        start = System.nanoTime();
+        ModuleInfo moduleInfo = new ModuleInfo(new String(content, UTF_8));
+        statistics.stop(Statistics.Phase.PARSE, start);
+        Entry parsed = new Entry(size, lastModified, checkedAt, hash, moduleInfo, session);
+        entries.put(path, parsed);
+        return parsed;
+    }
+
+    /**
+     * @return the content hash of the given file, if it was parsed before and did not change since, otherwise null
+     */
+    byte[] getContentHash(File moduleInfoFile) throws IOException {
+        String path = moduleInfoFile.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(moduleInfoFile.toPath(), BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        if (entry.size != attributes.size()
+                || entry.lastModified != lastModified
+                || lastModified >= entry.checkedAt - RACY_MODIFICATION_NANOS) {
+            return null;
+        }
+        used.add(path);
+        entry.lastUsedSession = session;
+        return entry.hash;
+    }
+
+    /**
+     * Writes all entries used in the current build to the given file, if anything changed or entries of the file were
+     * evicted. Entries of files that were not used are not written.
+     */
+    void save(Path cacheFile) throws IOException {
+        if (!changed
+                && !stale.contains(cacheFile)
+                && used.equals(persisted.get(cacheFile))
+                && Files.exists(cacheFile)) {
+            return;
+        }
+        Set<String> paths = new HashSet<>(used);
+        Files.createDirectories(cacheFile.getParent());
+        Path tmpFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(paths.size());
+                for (String path : paths) {
+                    Entry entry = entries.get(path);
+                    out.writeUTF(path);
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    out.writeLong(entry.checkedAt);
+                    out.writeByte(entry.hash.length);
+                    out.write(entry.hash);
+                    entry.moduleInfo.writeTo(out);
+                }
+            }
+            try {
+                Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        persisted.put(cacheFile, paths);
+        stale.remove(cacheFile);
+    }
+
+    /**
+     * Removes the least recently used entries until the cache holds at most the given number of entries. Entries used
+     * in the current build are kept. Cache files that contain removed entries are written again by the next
+     * {@link #save(Path)}, so that the entries are not loaded again.
+     *
+     * @return the number of removed entries
+     */
+    int evict(int maxEntries) {
+        int excess = entries.size() - maxEntries;
+        if (excess <= 0) {
+            return 0;
+        }
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!used.contains(entry.getKey())) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingInt(entry -> entry.getValue().lastUsedSession));
+        Set<String> evicted = new HashSet<>();
+        for (int i = 0; i < excess && i < candidates.size(); i++) {
+            String path = candidates.get(i).getKey();
+            entries.remove(path);
+            evicted.add(path);
+        }
+        for (Map.Entry<Path, Set<String>> persistedPaths : persisted.entrySet()) {
+            // the file stays known as loaded, also if it contains no more entries
+            if (persistedPaths.getValue().removeAll(evicted)) {
+                stale.add(persistedPaths.getKey());
+            }
+        }
+        evictions.addAndGet(evicted.size());
+        return evicted.size();
+    }
+
+    /**
+     * Resets the state of the current build. The entries stay in memory for the next build.
+     */
+    void endSession() {
+        session++;
+        used.clear();
+        hits.set(0);
+        misses.set(0);
+        changed = false;
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of entries evicted since the extension was loaded
+     */
+    int getEvictions() {
+        return evictions.get();
+    }
+
+    static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final long checkedAt;
+        private final byte[] hash;
+        private final ModuleInfo moduleInfo;
+        private volatile int lastUsedSession;
+
+        private Entry(
+                long size, long lastModified, long checkedAt, byte[] hash, ModuleInfo moduleInfo, int lastUsedSession) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+            this.hash = hash;
+            this.moduleInfo = moduleInfo;
+            this.lastUsedSession = lastUsedSession;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for reading a module-info.java file. Recorded if Maven runs with a flight recording, e.g.
+ * 'MAVEN_OPTS=-XX:StartFlightRecording'.
+ */
+@Name("org.gradlex.maven.javamodule.dependencies.ModuleInfoParsed")
+@Label("Module Info Parsed")
+@Category({"Maven", "Java Module Dependencies"})
+@Description("A module-info.java file was read and parsed, or taken from the cache")
+class ModuleInfoParsedEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Directives")
+    int directives;
+
+    @Label("Cached")
+    @Description("The parse result was reused without parsing the file")
+    boolean cached;
+}
@@ -0,0 +1,129 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses module-info.java files in the background while Maven still reads the POMs. The directory tree of the root
+ * project is searched for the default source folders ('src/main/java', 'src/test/java' and 'src/test/java9') and the
+ * module-info.java files found there are put into the {@link ModuleInfoParseCache}. Once the projects are known, the
+ * files of their actual source folders are taken from the cache, if they were prefetched and did not change since.
+ * Files that do not belong to any project are never used. Folders starting with '.' and 'target' folders are skipped.
+ */
+class ModuleInfoPrefetch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleInfoPrefetch.class);
+
+    private final ModuleInfoParseCache parseCache;
+    private final Statistics statistics = new Statistics(); // not reported, the build's statistics start later
+    private final ExecutorService executor;
+    private final AtomicInteger prefetched = new AtomicInteger();
+    private volatile boolean stopped;
+
+    private ModuleInfoPrefetch(ModuleInfoParseCache parseCache, int threads) {
+        this.parseCache = parseCache;
+        this.executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+    }
+
+    /**
+     * Starts searching the given directory and parsing the files found, using the given number of threads.
+     */
+    static ModuleInfoPrefetch start(Path rootDirectory, ModuleInfoParseCache parseCache, int threads) {
+        ModuleInfoPrefetch prefetch = new ModuleInfoPrefetch(parseCache, threads);
+        prefetch.executor.execute(() -> prefetch.walk(rootDirectory));
+        return prefetch;
+    }
+
+    /**
+     * Stops searching and parsing. Files that are parsed at that moment may still be added to the cache.
+     *
+     * @return the number of files prefetched so far
+     */
+    int stop() {
+        stopped = true;
+        executor.shutdownNow();
+        return prefetched.get();
+    }
+
+    private void walk(Path rootDirectory) {
+        try {
+            Files.walkFileTree(rootDirectory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    if (stopped) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                    if (!dir.equals(rootDirectory) && (name.startsWith(".") || name.equals("target"))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Path parent = dir.getParent();
+                    String parentName = parent == null || parent.getFileName() == null
+                            ? ""
+                            : parent.getFileName().toString();
+                    if (parentName.equals("src") && !name.equals("main") && !name.equals("test")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (parentName.equals("main") || parentName.equals("test")) {
+                        if (isSourceFolder(parentName, name) && isInSrc(parent)) {
+                            submit(dir.resolve("module-info.java"));
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (isInSrc(parent)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Prefetching module-info.java files stopped", e);
+        }
+    }
+
+    private static boolean isSourceFolder(String parentName, String name) {
+        return name.equals("java") || (parentName.equals("test") && name.equals("java9"));
+    }
+
+    private static boolean isInSrc(Path dir) {
+        Path parent = dir.getParent();
+        return parent != null && parent.getFileName() != null && parent.getFileName().toString().equals("src");
+    }
+
+    private void submit(Path moduleInfoFile) {
+        if (!Files.isRegularFile(moduleInfoFile)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                if (stopped) {
+                    return;
+                }
+                try {
+                    parseCache.prefetch(moduleInfoFile.toFile(), statistics);
+                    prefetched.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.debug("Could not prefetch {}", moduleInfoFile, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Writes the Module Path of each project, after the dependencies for the module-info.java files were added, to
+ * 'target/java-module-dependencies' of the project:
+ * <ul>
+ *     <li>'module-path.args' - javac argument file with the Module Path for compiling the main code
+ *     ('compile' and 'provided' dependencies)</li>
+ *     <li>'test-module-path.args' - the same for compiling and running the tests (dependencies of all scopes, as
+ *     on Maven's test classpath)</li>
+ *     <li>'modules.txt' - scope, Module Name and location of each dependency, one per line</li>
+ * </ul>
+ * Only the direct dependencies of a project are known at this point. Maven resolves transitive dependencies later.
+ * Dependencies on other projects of the reactor point to their output folders. Jars that are not in the local
+ * repository yet are listed in 'modules.txt' without Module Name and left out of the argument files.
+ */
+class ModulePathFiles {
+
+    private static final String DIRECTORY = "java-module-dependencies";
+
+    private final JarModuleNames jarModuleNames;
+    private final MavenModuleInfoCache moduleInfoCache;
+    private final Statistics statistics;
+    private final Map<String, MavenProject> projectsByKey = new HashMap<>();
+
+    ModulePathFiles(
+            JarModuleNames jarModuleNames,
+            MavenModuleInfoCache moduleInfoCache,
+            List<MavenProject> allProjects,
+            Statistics statistics) {
+        this.jarModuleNames = jarModuleNames;
+        this.moduleInfoCache = moduleInfoCache;
+        this.statistics = statistics;
+        for (MavenProject project : allProjects) {
+            projectsByKey.put(DependencyLock.key(project), project);
+        }
+    }
+
+    void write(MavenProject project) throws IOException {
+        List<String> mainPath = new ArrayList<>();
+        List<String> testPath = new ArrayList<>();
+        StringBuilder modules = new StringBuilder();
+        for (Dependency dependency : project.getDependencies()) {
+            if (!isJar(dependency) || "system".equals(dependency.getScope())) {
+                continue;
+            }
+            String scope = dependency.getScope() == null ? "compile" : dependency.getScope();
+            Location location = locate(dependency);
+            modules.append(scope)
+                    .append('\t')
+                    .append(location.moduleName == null ? "-" : location.moduleName)
+                    .append('\t')
+                    .append(location.path)
+                    .append('\n');
+            if (location.moduleName == null) {
+                continue;
+            }
+            if (scope.equals("compile") || scope.equals("provided")) {
+                mainPath.add(location.path);
+            }
+            testPath.add(location.path);
+        }
+
+        Path directory = Paths.get(project.getBuild().getDirectory(), DIRECTORY);
+        Files.createDirectories(directory);
+        writeIfChanged(directory.resolve("module-path.args"), argumentFile(mainPath));
+        writeIfChanged(directory.resolve("test-module-path.args"), argumentFile(testPath));
+        writeIfChanged(directory.resolve("modules.txt"), modules.toString());
+    }
+
+    private Location locate(Dependency dependency) {
+        MavenProject local = projectsByKey.get(dependency.getGroupId() + ":" + dependency.getArtifactId());
+        if (local != null) {
+            boolean tests = "tests".equals(dependency.getClassifier()) || "test-jar".equals(dependency.getType());
+            String moduleName = tests
+                    ? moduleInfoCache.getTest(local).getModuleName()
+                    : moduleInfoCache.getMain(local).getModuleName();
+            return new Location(
+                    tests ? local.getBuild().getTestOutputDirectory() : local.getBuild().getOutputDirectory(),
+                    moduleName.isEmpty() ? null : moduleName);
+        }
+        String fileName = dependency.getArtifactId() + "-" + dependency.getVersion()
+                + (dependency.getClassifier() == null ? "" : "-" + dependency.getClassifier()) + ".jar";
+        Path jar = jarModuleNames
+                .getRepository()
+                .resolve(dependency.getGroupId().replace('.', '/'))
+                .resolve(dependency.getArtifactId())
+                .resolve(dependency.getVersion())
+                .resolve(fileName);
+        return new Location(jar.toString(), Files.isRegularFile(jar) ? jarModuleNames.get(jar, statistics) : null);
+    }
+
+    private static boolean isJar(Dependency dependency) {
+        return dependency.getType() == null
+                || dependency.getType().equals("jar")
+                || dependency.getType().equals("test-jar");
+    }
+
+    /**
+     * Quoted as described for javac argument files, as locations may contain spaces.
+     */
+    private static String argumentFile(List<String> modulePath) {
+        if (modulePath.isEmpty()) {
+            return "";
+        }
+        String path = String.join(File.pathSeparator, modulePath);
+        return "--module-path\n\"" + path.replace("\\", "\\\\").replace("\"", "\\\"") + "\"\n";
+    }
+
+    /**
+     * Keeps the timestamp of files that did not change, for tools that check it.
+     */
+    private static void writeIfChanged(Path file, String content) throws IOException {
+        byte[] bytes = content.getBytes(UTF_8);
+        if (Files.isRegularFile(file) && Files.size(file) == bytes.length) {
+            if (new String(Files.readAllBytes(file), UTF_8).equals(content)) {
+                return;
+            }
+        }
+        Files.write(file, bytes);
+    }
+
+    private static class Location {
+        private final String path;
+        private final String moduleName; // null if unknown
+
+        private Location(String path, String moduleName) {
+            this.path = path;
+            this.moduleName = moduleName;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.model.Dependency;
+
+/**
+ * The dependency list of a project, indexed by management key (groupId:artifactId:type[:classifier]). Adding a
+ * dependency that is already in the list (declared in the POM or added for another directive) does not create a
+ * duplicate. Instead, the scopes are merged: 'compile' > 'provided' / 'runtime' > 'test'. Optionally, copies of all
+ * added dependencies are recorded as they were requested (before merging).
+ */
+class ProjectDependencies {
+
+    private final List<Dependency> dependencies;
+    private final Map<String, Dependency> byManagementKey = new HashMap<>();
+    private final List<Dependency> added;
+
+    ProjectDependencies(List<Dependency> dependencies) {
+        this(dependencies, null);
+    }
+
+    /**
+     * @param added where to record the added dependencies, or null to not record them
+     */
+    ProjectDependencies(List<Dependency> dependencies, List<Dependency> added) {
+        this.dependencies = dependencies;
+        this.added = added;
+        for (Dependency dependency : dependencies) {
+            byManagementKey.putIfAbsent(dependency.getManagementKey(), dependency);
+        }
+    }
+
+    void add(Dependency dependency) {
+        if (added != null) {
+            added.add(dependency.clone());
+        }
+        Dependency existing = byManagementKey.putIfAbsent(dependency.getManagementKey(), dependency);
+        if (existing == null) {
+            dependencies.add(dependency);
+        } else {
+            existing.setScope(mergeScopes(existing.getScope(), dependency.getScope()));
+        }
+    }
+
+    private static String mergeScopes(String existing, String added) {
+        if (existing == null || existing.equals(added)) {
+            return existing; // 'null' is 'compile' in the POM
+        }
+        switch (existing) {
+            case "test":
+                return added;
+            case "provided":
+            case "runtime":
+                return added.equals("test") ? existing : "compile";
+            default:
+                return existing; // 'compile', 'system'
+        }
+    }
+}
@@ -0,0 +1,88 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.apache.maven.model.Dependency;
+
+/**
+ * Reactor-wide memo of Module Names resolved through the mappings ('.mvn/modules.properties', {@link SharedMappings}
+ * and optionally the {@link LocalRepositoryIndex}) and the managed dependencies. Results, including missing mappings
+ * and missing versions, are kept per {@link ManagedDependencies} instance. As projects whose 'dependencyManagement'
+ * does not change any version share the instance of their parent, all these projects share one memo table.
+ */
+class ResolvedModules {
+
+    private final Map<String, String> localMappings;
+    private final LocalRepositoryIndex repositoryIndex;
+    private final Statistics statistics;
+    private final Map<ManagedDependencies, Map<String, ResolvedModule>> resolved = new IdentityHashMap<>();
+
+    ResolvedModules(Map<String, String> localMappings, Statistics statistics) {
+        this(localMappings, null, statistics);
+    }
+
+    /**
+     * @param repositoryIndex consulted for Module Names without mapping, or null
+     */
+    ResolvedModules(Map<String, String> localMappings, LocalRepositoryIndex repositoryIndex, Statistics statistics) {
+        this.localMappings = localMappings;
+        this.repositoryIndex = repositoryIndex;
+        this.statistics = statistics;
+    }
+
+    ResolvedModule resolve(String moduleName, ManagedDependencies managed) {
+        Map<String, ResolvedModule> resolvedForManaged = resolved.get(managed);
+        if (resolvedForManaged == null) {
+            resolvedForManaged = new HashMap<>();
+            resolved.put(managed, resolvedForManaged);
+        }
+        ResolvedModule resolvedModule = resolvedForManaged.get(moduleName);
+        if (resolvedModule == null) {
+            long start = System.nanoTime();
+            resolvedModule = resolveUncached(moduleName, managed);
+            resolvedForManaged.put(moduleName, resolvedModule);
+            statistics.stop(Statistics.Phase.RESOLUTION, start);
+        }
+        if (resolvedModule.coordinates == null) {
+            statistics.increment(Statistics.Counter.MISSING_MAPPINGS);
+        } else if (resolvedModule.coordinates.getVersion() == null) {
+            statistics.increment(Statistics.Counter.MISSING_VERSIONS);
+        }
+        return resolvedModule;
+    }
+
+    private ResolvedModule resolveUncached(String moduleName, ManagedDependencies managed) {
+        String source = ModuleDependencyResolvedEvent.LOCAL_MAPPING;
+        String mapping = localMappings.get(moduleName);
+        if (mapping == null) {
+            source = ModuleDependencyResolvedEvent.SHARED_MAPPING;
+            mapping = SharedMappings.get(moduleName);
+        }
+        if (mapping == null && repositoryIndex != null) {
+            source = ModuleDependencyResolvedEvent.REPOSITORY_INDEX;
+            mapping = repositoryIndex.get(moduleName, statistics);
+        }
+        if (mapping == null) {
+            return new ResolvedModule(null, null, ModuleDependencyResolvedEvent.MISSING_MAPPING);
+        }
+
+        Coordinates coordinates = Coordinates.parseMapping(mapping);
+        Dependency version = managed.find(coordinates.getGroup(), coordinates.getArtifact());
+        return new ResolvedModule(
+                mapping, version == null ? coordinates : coordinates.withVersion(version.getVersion()), source);
+    }
+
+    static class ResolvedModule {
+        final String mapping;
+        final Coordinates coordinates; // null if the mapping is missing, without version if the version is missing
+        final String source; // where the mapping was found, see ModuleDependencyResolvedEvent
+
+        private ResolvedModule(String mapping, Coordinates coordinates, String source) {
+            this.mapping = mapping;
+            this.coordinates = coordinates;
+            this.source = source;
+        }
+    }
+}
@@ -5,12 +5,32 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
 import java.util.Properties;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleNameIndex;
 
 /**
- * Class copied without modification.
+ * Module Name to 'group:artifact' mappings bundled with the extension. They are read from the binary 'modules.idx'
+ * generated at build time when first needed. If the index is not available, the '*.properties' files it is generated
+ * from are loaded instead.
  */
 public final class SharedMappings {
-    public static Map<String, String> mappings = loadModuleNameToGAProperties();
+
+    /**
+     * @return 'group:artifact' (artifact may contain a '|classifier' suffix) or null if the Module Name is unknown
+     */
+    public static String get(String moduleName) {
+        if (Holder.INDEX != null) {
+            return Holder.INDEX.get(moduleName);
+        }
+        return Holder.PROPERTIES.get(moduleName);
+    }
+
+    static ModuleNameIndex loadModuleNameIndex() {
+        try (InputStream index = SharedMappings.class.getResourceAsStream("modules.idx")) {
+            return index == null ? null : ModuleNameIndex.read(index);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
     static Map<String, String> loadModuleNameToGAProperties() {
         Properties properties = new Properties() {
@@ -41,5 +61,10 @@ public final class SharedMappings {
         return propertiesAsMap;
     }
 
+    private static final class Holder {
+        private static final ModuleNameIndex INDEX = loadModuleNameIndex();
+        private static final Map<String, String> PROPERTIES = INDEX == null ? loadModuleNameToGAProperties() : null;
+    }
+
     private SharedMappings() {}
 }
@@ -0,0 +1,111 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings and counters of the work done by the extension in one build. If a phase runs on several threads, the times
+ * of all threads are added up. 'resolution' is part of 'injection'. 'total' is the wall time of 'afterProjectsRead',
+ * which contains all phases, but not the work done in the background (prefetching and pre-resolving).
+ */
+class Statistics {
+
+    enum Phase {
+        DISCOVERY("discovery"),
+        READ("read"),
+        PARSE("parse"),
+        MANAGED_DEPENDENCIES("managedDependencies"),
+        RESOLUTION("resolution"),
+        INJECTION("injection"),
+        LOCK_FILE("lockFile"),
+        REPOSITORY_INDEX("repositoryIndex"),
+        MODULE_PATH_FILES("modulePathFiles"),
+        TOTAL("total");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    enum Counter {
+        PROJECTS("projects"),
+        PREFETCHED_FILES("prefetchedFiles"),
+        FILE_PROBES("fileProbes"),
+        MODULE_INFO_FILES("moduleInfoFiles"),
+        DIRECTIVES("directives"),
+        CACHE_HITS("cacheHits"),
+        CACHE_MISSES("cacheMisses"),
+        MISSING_MAPPINGS("missingMappings"),
+        MISSING_VERSIONS("missingVersions"),
+        DEPENDENCIES_ADDED("dependenciesAdded"),
+        JARS_READ("jarsRead"),
+        PRE_RESOLVED_ARTIFACTS("preResolvedArtifacts");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * Adds the time since 'startNanos' (a value of {@link System#nanoTime()}) to the given phase.
+     */
+    void stop(Phase phase, long startNanos) {
+        nanos.addAndGet(phase.ordinal(), System.nanoTime() - startNanos);
+    }
+
+    void increment(Counter counter) {
+        counts.incrementAndGet(counter.ordinal());
+    }
+
+    void add(Counter counter, long delta) {
+        counts.addAndGet(counter.ordinal(), delta);
+    }
+
+    long get(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+
+    long getNanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    /**
+     * @return 'key=value' pairs of all counters and the times of all phases in milliseconds
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            summary.append(counter.key).append('=').append(get(counter)).append(", ");
+        }
+        for (Phase phase : Phase.values()) {
+            summary.append(phase.key).append('=').append(TimeUnit.NANOSECONDS.toMillis(getNanos(phase)));
+            summary.append(phase == Phase.TOTAL ? "ms" : "ms, ");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * @return all counters and the times of all phases in nanoseconds as JSON object
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        for (Counter counter : Counter.values()) {
+            json.append(counter.ordinal() == 0 ? "\n" : ",\n");
+            json.append("    \"").append(counter.key).append("\": ").append(get(counter));
+        }
+        json.append("\n  },\n  \"nanos\": {");
+        for (Phase phase : Phase.values()) {
+            json.append(phase.ordinal() == 0 ? "\n" : ",\n");
+            json.append("    \"").append(phase.key).append("\": ").append(getNanos(phase));
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+}
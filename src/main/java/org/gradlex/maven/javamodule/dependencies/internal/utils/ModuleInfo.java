@@ -1,9 +1,11 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.gradlex.maven.javamodule.dependencies.internal.utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -28,10 +30,7 @@ public class ModuleInfo implements Serializable {
     private final List<String> requiresRuntime = new ArrayList<>();
 
     public ModuleInfo(String moduleInfoFileContent) {
-        boolean insideComment = false;
-        for (String line : moduleInfoFileContent.split("\n")) {
-            insideComment = parse(line, insideComment);
-        }
+        new Parser(moduleInfoFileContent).parse(this);
     }
 
     public String getModuleName() {
@@ -58,42 +57,41 @@ public class ModuleInfo implements Serializable {
     }
 
     /**
-     * @return true, if we are inside a multi-line comment after this line
+     * @return the number of 'requires' directives of all kinds
      */
-    private boolean parse(String moduleLine, boolean insideComment) {
-        if (insideComment) {
-            return !moduleLine.contains("*/");
-        }
-
-        List<String> tokens = Arrays.asList(moduleLine
-                .replace(";", "")
-                .replace("{", "")
-                .replace("}", "")
-                .replaceAll("/\\*.*?\\*/", " ")
-                .trim()
-                .split("\\s+"));
-        int singleLineCommentStartIndex = tokens.indexOf("//");
-        if (singleLineCommentStartIndex >= 0) {
-            tokens = tokens.subList(0, singleLineCommentStartIndex);
-        }
-
-        if (tokens.contains("module")) {
-            moduleName = tokens.get(tokens.size() - 1);
-        }
-        if (tokens.size() > 1 && tokens.get(0).equals("requires")) {
-            if (tokens.size() > 3 && tokens.contains("static") && tokens.contains("transitive")) {
-                requiresStaticTransitive.add(tokens.get(3));
-            } else if (tokens.size() > 2 && tokens.contains("transitive")) {
-                requiresTransitive.add(tokens.get(2));
-            } else if (tokens.size() > 2 && tokens.contains("static")) {
-                requiresStatic.add(tokens.get(2));
-            } else if (tokens.size() > 2 && tokens.contains("runtime")) {
-                requiresRuntime.add(tokens.get(2));
-            } else {
-                requires.add(tokens.get(1));
+    public int getDirectiveCount() {
+        return requires.size()
+                + requiresTransitive.size()
+                + requiresStatic.size()
+                + requiresStaticTransitive.size()
+                + requiresRuntime.size();
+    }
+
+    /**
+     * Writes the parsed information in a compact binary form that can be read back with {@link #readFrom(DataInput)}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(moduleName);
+        for (Directive directive : Directive.values()) {
+            List<String> modules = get(directive);
+            out.writeInt(modules.size());
+            for (String module : modules) {
+                out.writeUTF(module);
             }
         }
-        return moduleLine.lastIndexOf("/*") > moduleLine.lastIndexOf("*/");
+    }
+
+    public static ModuleInfo readFrom(DataInput in) throws IOException {
+        ModuleInfo moduleInfo = new ModuleInfo("");
+        moduleInfo.moduleName = in.readUTF();
+        for (Directive directive : Directive.values()) {
+            List<String> modules = moduleInfo.get(directive);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                modules.add(in.readUTF());
+            }
+        }
+        return moduleInfo;
     }
 
     @Override
@@ -114,4 +112,176 @@ public class ModuleInfo implements Serializable {
         return Objects.hash(
                 moduleName, requires, requiresTransitive, requiresStatic, requiresStaticTransitive, requiresRuntime);
     }
+
+    /**
+     * Single-pass tokenizer over the content of a module-info.java file. Comments and annotations are skipped inline.
+     * Only the module name and the names of 'requires' directives are materialized as strings.
+     */
+    private static final class Parser {
+        private static final int EOF = -1;
+        private static final int WORD = -2;
+
+        private final String content;
+        private final int length;
+
+        private int position;
+        private int wordStart;
+        private int wordEnd;
+
+        private Parser(String content) {
+            this.content = content;
+            this.length = content.length();
+        }
+
+        private void parse(ModuleInfo moduleInfo) {
+            boolean insideModule = false;
+            int token;
+            while ((token = next()) != EOF) {
+                if (token == '@') {
+                    skipAnnotation();
+                } else if (token == '{') {
+                    insideModule = true;
+                } else if (token == '}') {
+                    return;
+                } else if (token == WORD) {
+                    if (insideModule) {
+                        if (isWord("requires")) {
+                            parseRequires(moduleInfo);
+                        } else {
+                            skipDirective(); // exports, opens, uses, provides
+                        }
+                    } else if (isWord("import")) {
+                        skipDirective();
+                    } else if (isWord("module") && next() == WORD) {
+                        moduleInfo.moduleName = content.substring(wordStart, wordEnd);
+                    }
+                }
+            }
+        }
+
+        private void parseRequires(ModuleInfo moduleInfo) {
+            boolean isStatic = false;
+            boolean isTransitive = false;
+            boolean isRuntime = false;
+            int nameStart = -1;
+            int nameEnd = -1;
+            int token;
+            while ((token = next()) == WORD) {
+                if (nameStart >= 0) {
+                    // the previous word was a modifier
+                    isStatic |= isWord(nameStart, nameEnd, "static");
+                    isTransitive |= isWord(nameStart, nameEnd, "transitive");
+                    isRuntime |= isWord(nameStart, nameEnd, "runtime");
+                }
+                nameStart = wordStart;
+                nameEnd = wordEnd;
+            }
+            if (token != ';' || nameStart < 0) {
+                return;
+            }
+            String name = content.substring(nameStart, nameEnd);
+            if (isStatic && isTransitive) {
+                moduleInfo.requiresStaticTransitive.add(name);
+            } else if (isTransitive) {
+                moduleInfo.requiresTransitive.add(name);
+            } else if (isStatic) {
+                moduleInfo.requiresStatic.add(name);
+            } else if (isRuntime) {
+                moduleInfo.requiresRuntime.add(name);
+            } else {
+                moduleInfo.requires.add(name);
+            }
+        }
+
+        private void skipDirective() {
+            int token;
+            do {
+                token = next();
+            } while (token != ';' && token != '}' && token != EOF);
+            if (token == '}') {
+                position--; // let 'parse' see the end of the module
+            }
+        }
+
+        private void skipAnnotation() {
+            if (next() != WORD) {
+                return;
+            }
+            skipWhitespaceAndComments();
+            if (position < length && content.charAt(position) == '(') {
+                position++;
+                int depth = 1;
+                int token;
+                while (depth > 0 && (token = next()) != EOF) {
+                    if (token == '(') {
+                        depth++;
+                    } else if (token == ')') {
+                        depth--;
+                    } else if (token == '"' || token == '\'') {
+                        skipLiteral((char) token);
+                    }
+                }
+            }
+        }
+
+        private void skipLiteral(char quote) {
+            while (position < length) {
+                char c = content.charAt(position++);
+                if (c == '\\') {
+                    position++;
+                } else if (c == quote) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return WORD for a (qualified) name, whose bounds are then in wordStart/wordEnd, EOF at the end of the
+         * content, or the character itself for all other tokens
+         */
+        private int next() {
+            skipWhitespaceAndComments();
+            if (position >= length) {
+                return EOF;
+            }
+            char c = content.charAt(position);
+            if (Character.isJavaIdentifierStart(c)) {
+                wordStart = position;
+                do {
+                    position++;
+                } while (position < length
+                        && (Character.isJavaIdentifierPart(content.charAt(position))
+                                || content.charAt(position) == '.'));
+                wordEnd = position;
+                return WORD;
+            }
+            position++;
+            return c;
+        }
+
+        private void skipWhitespaceAndComments() {
+            while (position < length) {
+                char c = content.charAt(position);
+                if (Character.isWhitespace(c)) {
+                    position++;
+                } else if (c == '/' && position + 1 < length && content.charAt(position + 1) == '/') {
+                    int lineEnd = content.indexOf('\n', position + 2);
+                    position = lineEnd < 0 ? length : lineEnd + 1;
+                } else if (c == '/' && position + 1 < length && content.charAt(position + 1) == '*') {
+                    int commentEnd = content.indexOf("*/", position + 2);
+                    position = commentEnd < 0 ? length : commentEnd + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private boolean isWord(String keyword) {
+            return isWord(wordStart, wordEnd, keyword);
+        }
+
+        private boolean isWord(int start, int end, String keyword) {
+            return end - start == keyword.length() && content.regionMatches(start, keyword, 0, keyword.length());
+        }
+    }
 }
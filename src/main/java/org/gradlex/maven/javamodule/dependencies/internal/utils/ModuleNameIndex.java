@@ -0,0 +1,123 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.internal.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only map from Module Name to 'group:artifact' coordinates, backed by the binary index generated at build time
+ * (see 'ModuleMappingsIndex' task in 'build.gradle.kts'). The format is:
+ * <pre>
+ * int      magic ('JMMI')
+ * int      format version
+ * int      number of groups, followed by the groups as modified UTF-8 strings
+ * int      size of the hash table (power of two), followed by the slots: 0 for empty or the offset of an entry + 1
+ * int      size of the entry area, followed by the entries sorted by Module Name:
+ *          Module Name (modified UTF-8), group index (unsigned short), artifact (modified UTF-8)
+ * </pre>
+ * Slots are found by linear probing starting at the spread {@link String#hashCode()} of the Module Name. Lookups do
+ * not decode any string except the group and artifact of a match.
+ */
+public final class ModuleNameIndex {
+
+    public static final int MAGIC = 0x4A4D4D49; // JMMI
+    public static final int FORMAT_VERSION = 1;
+
+    private final ByteBuffer buffer;
+    private final String[] groups;
+    private final int tableStart;
+    private final int tableMask;
+    private final int entriesStart;
+
+    private ModuleNameIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a module name index (version " + FORMAT_VERSION + ")");
+        }
+        this.groups = new String[buffer.getInt()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = readString(buffer.position());
+            buffer.position(buffer.position() + 2 + (buffer.getShort(buffer.position()) & 0xFFFF));
+        }
+        int tableSize = buffer.getInt();
+        this.tableStart = buffer.position();
+        this.tableMask = tableSize - 1;
+        buffer.position(tableStart + tableSize * 4);
+        buffer.getInt(); // size of entry area
+        this.entriesStart = buffer.position();
+    }
+
+    public static ModuleNameIndex read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512 * 1024);
+        byte[] chunk = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return new ModuleNameIndex(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * @return 'group:artifact' (artifact may contain a '|classifier' suffix) or null if the Module Name is unknown
+     */
+    public String get(String moduleName) {
+        int index = spread(moduleName.hashCode()) & tableMask;
+        int slot;
+        while ((slot = buffer.getInt(tableStart + index * 4)) != 0) {
+            int entry = entriesStart + slot - 1;
+            if (matches(entry, moduleName)) {
+                int groupIndex = entry + 2 + (buffer.getShort(entry) & 0xFFFF);
+                String group = groups[buffer.getShort(groupIndex) & 0xFFFF];
+                return group + ":" + readString(groupIndex + 2);
+            }
+            index = (index + 1) & tableMask;
+        }
+        return null;
+    }
+
+    public static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private boolean matches(int position, String moduleName) {
+        int i = position + 2;
+        int end = i + (buffer.getShort(position) & 0xFFFF);
+        int charIndex = 0;
+        while (i < end) {
+            if (charIndex == moduleName.length() || charAt(i) != moduleName.charAt(charIndex++)) {
+                return false;
+            }
+            i += charLength(i);
+        }
+        return charIndex == moduleName.length();
+    }
+
+    private String readString(int position) {
+        int i = position + 2;
+        int end = i + (buffer.getShort(position) & 0xFFFF);
+        StringBuilder result = new StringBuilder(end - i);
+        while (i < end) {
+            result.append(charAt(i));
+            i += charLength(i);
+        }
+        return result.toString();
+    }
+
+    private char charAt(int i) {
+        int b = buffer.get(i) & 0xFF;
+        if (b < 0x80) {
+            return (char) b;
+        }
+        if ((b & 0xE0) == 0xC0) {
+            return (char) (((b & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F));
+        }
+        return (char) (((b & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6) | (buffer.get(i + 2) & 0x3F));
+    }
+
+    private int charLength(int i) {
+        int b = buffer.get(i) & 0xFF;
+        return b < 0x80 ? 1 : (b & 0xE0) == 0xC0 ? 2 : 3;
+    }
+}
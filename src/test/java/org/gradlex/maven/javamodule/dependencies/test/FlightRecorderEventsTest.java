@@ -0,0 +1,102 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.InProcessBuild;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.MavenBuild;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Records the JFR events of a build running in the test JVM.
+ */
+class FlightRecorderEventsTest {
+
+    private static final String MODULE_INFO_PARSED = "org.gradlex.maven.javamodule.dependencies.ModuleInfoParsed";
+    private static final String MODULE_DEPENDENCY_RESOLVED =
+            "org.gradlex.maven.javamodule.dependencies.ModuleDependencyResolved";
+
+    MavenBuild build = new MavenBuild();
+    InProcessBuild inProcess = new InProcessBuild(build);
+
+    @Test
+    void records_parsed_module_info_files_and_resolved_module_names() throws IOException {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+                requires java.sql;
+                requires commons.math3;
+            }""");
+
+        List<RecordedEvent> events = record();
+
+        assertThat(events(events, MODULE_INFO_PARSED))
+                .extracting(
+                        event -> Path.of(event.getString("path")),
+                        event -> event.getLong("bytes"),
+                        event -> event.getInt("directives"),
+                        event -> event.getBoolean("cached"))
+                .containsExactlyInAnyOrder(
+                        tuple(
+                                build.appModuleInfoFile.getAsPath(),
+                                (long) build.appModuleInfoFile.text().length(),
+                                3,
+                                false),
+                        tuple(
+                                build.libModuleInfoFile.getAsPath(),
+                                (long) build.libModuleInfoFile.text().length(),
+                                0,
+                                false));
+        assertThat(events(events, MODULE_DEPENDENCY_RESOLVED))
+                .extracting(
+                        event -> event.getString("project"),
+                        event -> event.getString("moduleName"),
+                        event -> event.getString("scope"),
+                        event -> event.getString("source"))
+                .containsExactlyInAnyOrder(
+                        tuple("org.example:app:1.0", "org.example.lib", "compile", "local"),
+                        tuple("org.example:app:1.0", "java.sql", "compile", "jdk"),
+                        tuple("org.example:app:1.0", "commons.math3", "compile", "missing-mapping"));
+    }
+
+    @Test
+    void records_reuse_of_parse_results_in_later_builds() throws IOException {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("module org.example.app { }");
+        inProcess.afterProjectsRead();
+
+        List<RecordedEvent> events = record();
+
+        assertThat(events(events, MODULE_INFO_PARSED))
+                .extracting(event -> event.getBoolean("cached"))
+                .containsExactly(true, true);
+    }
+
+    private List<RecordedEvent> record() throws IOException {
+        Path recordingFile = build.projectDir.getAsPath().resolve("build.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MODULE_INFO_PARSED);
+            recording.enable(MODULE_DEPENDENCY_RESOLVED);
+            recording.start();
+            inProcess.afterProjectsRead();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        return RecordingFile.readAllEvents(recordingFile);
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,945 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.InProcessBuild;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.LargeReactor;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.MavenBuild;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the extension in the test JVM. End-to-end behavior is covered by the tests that run Maven.
+ */
+class InProcessTest {
+
+    MavenBuild build = new MavenBuild();
+    InProcessBuild inProcess = new InProcessBuild(build);
+
+    @Test
+    void adds_dependencies_on_local_modules() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires transitive org.example.lib;
+            }""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertThat(result.dependencies("lib")).isEmpty();
+    }
+
+    @Test
+    void adds_dependencies_with_managed_versions_and_scopes() {
+        build.file(".mvn/modules.properties").writeText("jakarta.mail=com.sun.mail:jakarta.mail");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>com.sun.mail</groupId>
+                            <artifactId>jakarta.mail</artifactId>
+                            <version>2.0.1</version>
+                        </dependency>
+                        <dependency>
+                            <groupId>org.slf4j</groupId>
+                            <artifactId>slf4j-api</artifactId>
+                            <version>2.0.17</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires jakarta.mail;
+                requires static org.slf4j;
+                requires java.desktop;
+            }""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app"))
+                .containsExactly(
+                        "com.sun.mail:jakarta.mail:jar:2.0.1:compile", "org.slf4j:slf4j-api:jar:2.0.17:provided");
+    }
+
+    @Test
+    void uses_managed_versions_of_child_project_with_other_version() {
+        managedExtVersion("${project.version}");
+        build.appPomFile.replaceText("<artifactId>app</artifactId>", """
+                <artifactId>app</artifactId>
+                <version>2.0</version>""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example.ext:ext-lib:jar:2.0:compile");
+        assertThat(result.dependencies("lib")).containsExactly("org.example.ext:ext-lib:jar:1.0:compile");
+    }
+
+    @Test
+    void uses_managed_versions_of_child_project_with_own_properties() {
+        managedExtVersion("${ext.version}");
+        build.appPomFile.replaceText("<artifactId>app</artifactId>", """
+                <artifactId>app</artifactId>
+                <properties>
+                    <ext.version>1.3</ext.version>
+                </properties>""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example.ext:ext-lib:jar:1.3:compile");
+        assertThat(result.dependencies("lib")).containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+    }
+
+    @Test
+    void uses_managed_versions_of_child_project_with_own_profile() {
+        managedExtVersion("${ext.version}");
+        build.appPomFile.replaceText("<artifactId>app</artifactId>", """
+                <artifactId>app</artifactId>
+                <profiles>
+                    <profile>
+                        <id>ext</id>
+                        <activation>
+                            <activeByDefault>true</activeByDefault>
+                        </activation>
+                        <properties>
+                            <ext.version>1.4</ext.version>
+                        </properties>
+                    </profile>
+                </profiles>""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example.ext:ext-lib:jar:1.4:compile");
+        assertThat(result.dependencies("lib")).containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+    }
+
+    @Test
+    void uses_managed_versions_of_child_project_that_activates_profile_of_parent() {
+        managedExtVersion("${ext.version}");
+        build.rootPom.replaceText("<modules>", """
+                <profiles>
+                    <profile>
+                        <id>ext</id>
+                        <activation>
+                            <file>
+                                <exists>${basedir}/ext-1.5.marker</exists>
+                            </file>
+                        </activation>
+                        <properties>
+                            <ext.version>1.5</ext.version>
+                        </properties>
+                    </profile>
+                </profiles>
+                <modules>""");
+        build.file("app/ext-1.5.marker").writeText("");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example.ext:ext-lib:jar:1.5:compile");
+        assertThat(result.dependencies("lib")).containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+    }
+
+    @Test
+    void adds_dependencies_for_test_module_info() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.file("lib/src/test/java/module-info.java").writeText("""
+            open module org.example.lib.test {
+                requires org.example.lib;
+            }""");
+        build.appModuleInfoFile.writeText("module org.example.app { }");
+        build.file("app/src/test/java/module-info.java").writeText("""
+            module org.example.app.test {
+                requires org.example.lib;
+                requires org.example.lib.test;
+            }""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:test", "org.example:lib:jar:tests:1.0:test");
+        assertThat(result.dependencies("lib")).isEmpty();
+    }
+
+    @Test
+    void does_not_add_dependency_if_mapping_or_version_is_missing() {
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires commons.math3;
+                requires org.slf4j;
+            }""");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).isEmpty();
+    }
+
+    @Test
+    void merges_with_dependencies_declared_in_pom() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        build.file("app/src/test/java/module-info.java").writeText("""
+            module org.example.app.test {
+                requires org.example.lib;
+            }""");
+        build.appPomFile.replaceText("</project>", """
+                <dependencies>
+                    <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib</artifactId>
+                        <version>1.0</version>
+                        <scope>test</scope>
+                    </dependency>
+                </dependencies>
+            </project>
+            """);
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+    }
+
+    @Test
+    void picks_up_changed_module_info_in_next_build() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("module org.example.app { }");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app")).isEmpty();
+
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:compile");
+    }
+
+    @Test
+    void picks_up_changed_mappings_in_next_build_if_size_and_modification_time_are_the_same() throws IOException {
+        var mappings = build.file(".mvn/modules.properties");
+        mappings.writeText("org.example.ext=org.example.ext:ext-lib");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-api</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+            }""");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+
+        // e.g. edited within the resolution of the file system's timestamps
+        FileTime lastModified = Files.getLastModifiedTime(mappings.getAsPath());
+        mappings.writeText("org.example.ext=org.example.ext:ext-api");
+        Files.setLastModifiedTime(mappings.getAsPath(), lastModified);
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example.ext:ext-api:jar:1.2:compile");
+    }
+
+    @Test
+    void adds_dependencies_to_selected_projects_and_the_local_modules_they_require() {
+        build.file(".mvn/modules.properties").writeText("jakarta.mail=com.sun.mail:jakarta.mail");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>com.sun.mail</groupId>
+                            <artifactId>jakarta.mail</artifactId>
+                            <version>2.0.1</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.libModuleInfoFile.writeText("""
+            module org.example.lib {
+                requires jakarta.mail;
+            }""");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.selectedProjects", "true");
+        inProcess.selectedProjects.add("app");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertThat(result.dependencies("lib")).containsExactly("com.sun.mail:jakarta.mail:jar:2.0.1:compile");
+    }
+
+    @Test
+    void builds_local_modules_required_by_selected_projects_if_also_make_is_used() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.selectedProjects", "true");
+        // '-pl app -am': Maven selected the parent, but not 'lib' which is only required in module-info.java
+        inProcess.selectedProjects.add("test-project");
+        inProcess.selectedProjects.add("app");
+        inProcess.makeBehavior = MavenExecutionRequest.REACTOR_MAKE_UPSTREAM;
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertThat(result.selectedProjects()).containsExactly("test-project", "app", "lib");
+    }
+
+    @Test
+    void does_not_add_dependencies_to_projects_that_are_not_required_by_selected_projects() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.selectedProjects", "true");
+        inProcess.selectedProjects.add("lib");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).isEmpty();
+        assertThat(result.dependencies("lib")).isEmpty();
+    }
+
+    @Test
+    void only_adds_dependencies_to_selected_projects_if_list_of_changed_files_is_empty() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.selectedProjects", "true");
+        // e.g. '-DjavaModuleDependencies.changedFiles=$(git diff --name-only)' without changes
+        inProcess.userProperties.setProperty("javaModuleDependencies.changedFiles", "");
+        inProcess.selectedProjects.add("lib");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).isEmpty();
+        assertThat(result.selectedProjects()).containsExactly("lib");
+    }
+
+    @Test
+    void takes_dependencies_from_lock_file_if_inputs_did_not_change() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.lockFile", "true");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:compile");
+
+        var lockFile = build.file(".mvn/module-dependencies.lock");
+        assertThat(lockFile.text()).contains("[org.example:app]\norg.example:lib:1.0:compile\n");
+
+        lockFile.replaceText("org.example:lib:1.0:compile", "org.example:lib:1.0:runtime");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:runtime");
+
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires static org.example.lib;
+            }""");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:provided");
+        assertThat(lockFile.text()).contains("[org.example:app]\norg.example:lib:1.0:provided\n");
+    }
+
+    @Test
+    void leaves_failing_for_cycle_between_modules_to_maven() {
+        build.libModuleInfoFile.writeText("""
+            module org.example.lib {
+                requires org.example.app;
+            }""");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.moduleGraph", "true");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertThat(result.dependencies("lib")).containsExactly("org.example:app:jar:1.0:compile");
+        assertThat(build.file("target/java-module-dependencies/module-graph.txt").getAsPath())
+                .doesNotExist();
+    }
+
+    @Test
+    void ignores_dependency_on_other_version_of_project_in_module_graph() {
+        build.libPomFile.replaceText("<artifactId>lib</artifactId>", """
+                <artifactId>lib</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>app</artifactId>
+                        <version>0.9</version>
+                    </dependency>
+                </dependencies>""");
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.moduleGraph", "true");
+
+        inProcess.afterProjectsRead();
+
+        assertThat(build.file("target/java-module-dependencies/module-graph.txt").text())
+                .contains("Critical path (3 projects): test-project -> org.example.lib -> org.example.app");
+    }
+
+    @Test
+    void reports_critical_path_of_module_graph() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.moduleGraph", "true");
+
+        inProcess.afterProjectsRead();
+
+        assertThat(build.file("target/java-module-dependencies/module-graph.txt").text())
+                .contains("Critical path (3 projects): test-project -> org.example.lib -> org.example.app")
+                .contains("1\ttest-project", "2\torg.example.lib", "3\torg.example.app");
+    }
+
+    @Test
+    void reports_module_graph_of_long_chain_of_projects() throws InterruptedException {
+        int length = 2000;
+        var modules = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            modules.append("<module>p").append(i).append("</module>\n");
+            build.file("p" + i + "/pom.xml").writeText("""
+                <project>
+                    <modelVersion>4.0.0</modelVersion>
+                    <parent>
+                        <groupId>org.example</groupId>
+                        <artifactId>test-project</artifactId>
+                        <version>1.0</version>
+                    </parent>
+                    <artifactId>p%d</artifactId>
+                </project>
+                """.formatted(i));
+            // the first project of the reactor requires all others, which are searched before they are visited
+            build.file("p" + i + "/src/main/java/module-info.java")
+                    .writeText(i == length - 1
+                            ? "module org.example.p%d { }".formatted(i)
+                            : "module org.example.p%d { requires org.example.p%d; }".formatted(i, i + 1));
+        }
+        build.rootPom.replaceText("<module>app</module>", modules.toString());
+        inProcess.userProperties.setProperty("javaModuleDependencies.moduleGraph", "true");
+
+        // a small stack (the JVM may round it up), on which a recursive search through the chain fails
+        var failure = new AtomicReference<Throwable>();
+        var thread = new Thread(null, () -> {
+            try {
+                inProcess.afterProjectsRead();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "small-stack", 64 * 1024);
+        thread.start();
+        thread.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(build.file("target/java-module-dependencies/module-graph.txt").text())
+                .contains("Critical path (" + (length + 1) + " projects): test-project -> org.example.p" + (length - 1))
+                .contains("2\torg.example.p" + (length - 1), (length + 1) + "\torg.example.p0");
+    }
+
+    @Test
+    void ignores_prefetched_module_info_outside_of_projects() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.file("samples/lib/src/main/java/module-info.java").writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.prefetch", "true");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+    }
+
+    @Test
+    void maps_module_names_through_index_of_local_repository() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        writeJar(repository.resolve("org/example/ext/ext-lib/1.2/ext-lib-1.2.jar"), "org.example.ext");
+        writeJar(repository.resolve("org/example/ext/ext-lib/1.2/ext-lib-1.2-sources.jar"), "org.example.sources");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+                requires org.example.sources;
+            }""");
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.localRepositoryIndex", "true");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.dependencies("app")).containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+        assertThat(repository.resolve(".java-module-dependencies/module-names.txt"))
+                .content()
+                .contains("org/example/ext/ext-lib/1.2/ext-lib-1.2.jar");
+    }
+
+    @Test
+    void only_searches_directories_of_local_repository_that_changed_since_last_search() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        Path extJar = repository.resolve("org/example/ext/ext-lib/1.2/ext-lib-1.2.jar");
+        writeJar(extJar, "org.example.ext");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                        <dependency>
+                            <groupId>org.example.other</groupId>
+                            <artifactId>other-lib</artifactId>
+                            <version>1.0</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+            }""");
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.localRepositoryIndex", "true");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+
+        // changed in place, which Maven does not do, so that reading the jar again would be visible
+        writeJar(extJar, "org.example.changed.in.place");
+        Files.setLastModifiedTime(extJar.getParent(), FileTime.fromMillis(0));
+        writeJar(repository.resolve("org/example/other/other-lib/1.0/other-lib-1.0.jar"), "org.example.other");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.other;
+                requires org.example.ext;
+            }""");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly(
+                        "org.example.other:other-lib:jar:1.0:compile", "org.example.ext:ext-lib:jar:1.2:compile");
+    }
+
+    @Test
+    void does_not_lock_dependencies_while_module_name_is_missing_in_index_of_local_repository() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        Files.createDirectories(repository);
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+            }""");
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.localRepositoryIndex", "true");
+        inProcess.userProperties.setProperty("javaModuleDependencies.lockFile", "true");
+        var lockFile = build.file(".mvn/module-dependencies.lock");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app")).isEmpty();
+        assertThat(lockFile.exists()).isFalse();
+
+        writeJar(repository.resolve("org/example/ext/ext-lib/1.2/ext-lib-1.2.jar"), "org.example.ext");
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+        assertThat(lockFile.exists()).isFalse(); // index changed in this build
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example.ext:ext-lib:jar:1.2:compile");
+        assertThat(lockFile.text()).contains("[org.example:app]\norg.example.ext:ext-lib:1.2:compile\n");
+    }
+
+    @Test
+    void writes_module_path_of_each_project() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        Path jar = repository.resolve("org/example/ext/ext-lib/1.2/ext-lib-1.2.jar");
+        writeJar(jar, "org.example.ext");
+        Files.writeString(jar.resolveSibling("ext-lib-1.2.jar.sha1"), "0123456789abcdef0123456789abcdef01234567");
+        build.file(".mvn/modules.properties").writeText("org.example.ext=org.example.ext:ext-lib");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>1.2</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+                requires org.example.lib;
+            }""");
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.modulePathFiles", "true");
+
+        inProcess.afterProjectsRead();
+
+        Path lib = build.projectDir.getAsPath().resolve("lib/target/classes");
+        assertThat(build.file("app/target/java-module-dependencies/modules.txt").text())
+                .isEqualTo("compile\torg.example.ext\t" + jar + "\ncompile\torg.example.lib\t" + lib + "\n");
+        assertThat(build.file("app/target/java-module-dependencies/module-path.args").text())
+                .isEqualTo("--module-path\n\"" + jar + File.pathSeparator + lib + "\"\n");
+        assertThat(repository.resolve(".java-module-dependencies/descriptors/01")
+                        .resolve("0123456789abcdef0123456789abcdef01234567"))
+                .hasContent("org.example.ext");
+    }
+
+    @Test
+    void writes_runtime_dependencies_to_test_module_path_only() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        Files.createDirectories(repository);
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("module org.example.app { }");
+        build.appPomFile.replaceText("</project>", """
+                <dependencies>
+                    <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib</artifactId>
+                        <version>1.0</version>
+                        <scope>runtime</scope>
+                    </dependency>
+                </dependencies>
+            </project>
+            """);
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.modulePathFiles", "true");
+
+        inProcess.afterProjectsRead();
+
+        Path lib = build.projectDir.getAsPath().resolve("lib/target/classes");
+        assertThat(build.file("app/target/java-module-dependencies/modules.txt").text())
+                .isEqualTo("runtime\torg.example.lib\t" + lib + "\n");
+        assertThat(build.file("app/target/java-module-dependencies/module-path.args").text())
+                .isEmpty();
+        assertThat(build.file("app/target/java-module-dependencies/test-module-path.args").text())
+                .isEqualTo("--module-path\n\"" + lib + "\"\n");
+    }
+
+    @Test
+    void writes_same_module_path_if_dependencies_are_taken_from_lock_file() throws IOException {
+        Path repository = build.projectDir.getAsPath().resolve("repository");
+        Files.createDirectories(repository);
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.localRepository = repository;
+        inProcess.userProperties.setProperty("javaModuleDependencies.lockFile", "true");
+        inProcess.userProperties.setProperty("javaModuleDependencies.modulePathFiles", "true");
+        var modules = build.file("app/target/java-module-dependencies/modules.txt");
+        var modulePath = build.file("app/target/java-module-dependencies/module-path.args");
+
+        inProcess.afterProjectsRead();
+        String computedModules = modules.text();
+        String computedModulePath = modulePath.text();
+        modules.delete();
+        modulePath.delete();
+        inProcess.afterProjectsRead();
+
+        Path lib = build.projectDir.getAsPath().resolve("lib/target/classes");
+        assertThat(computedModules).isEqualTo("compile\torg.example.lib\t" + lib + "\n");
+        assertThat(modules.text()).isEqualTo(computedModules);
+        assertThat(modulePath.text()).isEqualTo(computedModulePath);
+    }
+
+    @Test
+    void resolves_added_dependencies_in_the_background() {
+        List<String> resolved = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        build.file(".mvn/modules.properties").writeText("jakarta.mail=com.sun.mail:jakarta.mail");
+        build.rootPom.replaceText("</project>", """
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>com.sun.mail</groupId>
+                            <artifactId>jakarta.mail</artifactId>
+                            <version>2.0.1</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """);
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires jakarta.mail;
+                requires org.example.lib;
+            }""");
+        inProcess = new InProcessBuild(build, repositorySystem(resolved, done));
+        inProcess.userProperties.setProperty("javaModuleDependencies.preResolve", "true");
+        inProcess.execution = () -> await(done);
+
+        inProcess.afterProjectsRead();
+
+        assertThat(resolved)
+                .containsExactly("com.sun.mail:jakarta.mail:jar:2.0.1", "com.sun.mail:jakarta.mail:pom:2.0.1");
+    }
+
+    @Test
+    void resolves_files_with_extension_and_classifier_of_dependency_type_in_the_background() {
+        List<String> resolved = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        build.appPomFile.replaceText("<artifactId>app</artifactId>", """
+                <artifactId>app</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>org.example.other</groupId>
+                        <artifactId>tools</artifactId>
+                        <version>2.0</version>
+                        <type>test-jar</type>
+                        <scope>test</scope>
+                    </dependency>
+                    <dependency>
+                        <groupId>org.example.other</groupId>
+                        <artifactId>plugin</artifactId>
+                        <version>2.0</version>
+                        <type>maven-plugin</type>
+                    </dependency>
+                </dependencies>""");
+        inProcess = new InProcessBuild(build, repositorySystem(resolved, done));
+        inProcess.userProperties.setProperty("javaModuleDependencies.preResolve", "true");
+        inProcess.execution = () -> await(done);
+
+        inProcess.afterProjectsRead();
+
+        assertThat(resolved)
+                .containsExactly(
+                        "org.example.other:tools:jar:tests:2.0",
+                        "org.example.other:tools:pom:2.0",
+                        "org.example.other:plugin:jar:2.0",
+                        "org.example.other:plugin:pom:2.0");
+    }
+
+    @Test
+    void selects_projects_affected_by_changed_files() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+
+        inProcess.userProperties.setProperty("javaModuleDependencies.changedFiles", "lib/src/main/java/Lib.java");
+        assertThat(inProcess.afterProjectsRead().selectedProjects()).containsExactly("app", "lib");
+
+        inProcess.userProperties.setProperty("javaModuleDependencies.changedFiles", "app/pom.xml");
+        assertThat(inProcess.afterProjectsRead().selectedProjects()).containsExactly("app");
+
+        build.file("changes.txt").writeText("pom.xml\n");
+        inProcess.userProperties.setProperty("javaModuleDependencies.changedFiles", "@changes.txt");
+        assertThat(inProcess.afterProjectsRead().selectedProjects()).containsExactly("test-project", "app", "lib");
+    }
+
+    @Test
+    void only_lists_projects_affected_by_changed_files() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        inProcess.userProperties.setProperty("javaModuleDependencies.changedFiles", "lib/src/main/java/Lib.java");
+        inProcess.userProperties.setProperty("javaModuleDependencies.affectedProjects", "print");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(result.selectedProjects()).containsExactly("test-project", "app", "lib");
+        assertThat(build.file("target/java-module-dependencies/affected-projects.txt").text())
+                .isEqualTo("org.example:app\norg.example:lib\n");
+    }
+
+    @Test
+    void adds_same_dependencies_if_module_info_files_are_read_with_several_threads() {
+        new LargeReactor(build, 60);
+        var singleThreaded = inProcess.afterProjectsRead();
+
+        for (int run = 0; run < 3; run++) {
+            var parallel = new InProcessBuild(build);
+            parallel.userProperties.setProperty("javaModuleDependencies.threads", "8");
+            var result = parallel.afterProjectsRead();
+
+            assertThat(result.getProjects()).hasSize(singleThreaded.getProjects().size());
+            for (int i = 0; i < 60; i++) {
+                assertThat(result.dependencies("p" + i))
+                        .as("p" + i)
+                        .isNotEmpty()
+                        .isEqualTo(singleThreaded.dependencies("p" + i));
+            }
+        }
+    }
+
+    @Test
+    void fails_with_error_of_unreadable_module_info_if_module_info_files_are_read_with_several_threads() {
+        new LargeReactor(build, 20);
+        var unreadable = build.file("level1/level2/p7/src/main/java/module-info.java");
+        unreadable.delete();
+        // exists, but cannot be read
+        assertThat(unreadable.getAsPath().toFile().mkdir()).isTrue();
+        inProcess.userProperties.setProperty("javaModuleDependencies.threads", "4");
+
+        assertThatThrownBy(inProcess::afterProjectsRead)
+                .cause()
+                .isInstanceOf(MavenExecutionException.class)
+                .hasMessage("Error reading module-info.java")
+                .cause()
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(unreadable.getAsPath().toString());
+    }
+
+    /**
+     * @return a repository system that records the artifacts it resolves and counts down after the first batch
+     */
+    private RepositorySystem repositorySystem(List<String> resolved, CountDownLatch done) {
+        return (RepositorySystem) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {RepositorySystem.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("resolveArtifacts")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    List<ArtifactResult> results = new ArrayList<>();
+                    for (Object request : (Collection<?>) args[1]) {
+                        ArtifactResult result = new ArtifactResult((ArtifactRequest) request);
+                        result.setArtifact(result.getRequest().getArtifact().setFile(new File("resolved")));
+                        resolved.add(result.getArtifact().toString());
+                        results.add(result);
+                    }
+                    done.countDown();
+                    return results;
+                });
+    }
+
+    /**
+     * Lets app and lib require 'org.example.ext', which has the given version in the 'dependencyManagement' of the
+     * root project. The root project defines the property 'ext.version=1.2'.
+     */
+    private void managedExtVersion(String version) {
+        build.file(".mvn/modules.properties").writeText("org.example.ext=org.example.ext:ext-lib");
+        build.rootPom.replaceText("</project>", """
+                <properties>
+                    <ext.version>1.2</ext.version>
+                </properties>
+                <dependencyManagement>
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.example.ext</groupId>
+                            <artifactId>ext-lib</artifactId>
+                            <version>%s</version>
+                        </dependency>
+                    </dependencies>
+                </dependencyManagement>
+            </project>
+            """.formatted(version));
+        build.libModuleInfoFile.writeText("""
+            module org.example.lib {
+                requires org.example.ext;
+            }""");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.ext;
+            }""");
+    }
+
+    private static void await(CountDownLatch done) {
+        try {
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeJar(Path jar, String automaticModuleName) throws IOException {
+        Files.createDirectories(jar.getParent());
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Automatic-Module-Name", automaticModuleName);
+        try (OutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleInfo;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.InProcessBuild;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.MavenBuild;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.WritableFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ModuleInfoParseCacheTest {
+
+    MavenBuild build = new MavenBuild();
+    InProcessBuild inProcess = new InProcessBuild(build);
+    WritableFile cacheFile = build.file("target/java-module-dependencies/module-info.cache");
+
+    @BeforeEach
+    void enableCache() {
+        inProcess.userProperties.setProperty("javaModuleDependencies.parseCache", "true");
+        inProcess.userProperties.setProperty("javaModuleDependencies.statistics", "true");
+    }
+
+    @Test
+    void writes_and_reads_all_kinds_of_directives() throws IOException {
+        var moduleInfo = new ModuleInfo("""
+            module org.example.app {
+                requires org.example.lib;
+                requires transitive org.example.api;
+                requires static org.example.annotations;
+                requires static transitive org.example.spi;
+                requires /*runtime*/ org.example.impl;
+                requires runtime org.example.driver;
+            }""");
+
+        var bytes = new ByteArrayOutputStream();
+        moduleInfo.writeTo(new DataOutputStream(bytes));
+        var read = ModuleInfo.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read).isEqualTo(moduleInfo);
+        assertThat(read.getModuleName()).isEqualTo("org.example.app");
+        assertThat(read.getDirectiveCount()).isEqualTo(6);
+    }
+
+    @Test
+    void reuses_persisted_parse_results_in_new_maven_process() {
+        writeModuleInfoFilesWithTestModules();
+
+        var expected = inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 0L).containsEntry("cacheMisses", 4L);
+        assertThat(cacheFile.exists()).isTrue();
+
+        var restarted = new InProcessBuild(build);
+        restarted.userProperties.putAll(inProcess.userProperties);
+        var result = restarted.afterProjectsRead();
+
+        assertThat(statistics()).containsEntry("cacheHits", 4L).containsEntry("cacheMisses", 0L);
+        assertThat(result.dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:test", "org.example:lib:jar:tests:1.0:test")
+                .isEqualTo(expected.dependencies("app"));
+        assertThat(result.dependencies("lib")).isEqualTo(expected.dependencies("lib"));
+    }
+
+    @Test
+    void ignores_corrupt_cache_file() {
+        writeModuleInfoFiles();
+        cacheFile.writeText("not a cache file");
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(statistics()).containsEntry("cacheHits", 0L).containsEntry("cacheMisses", 2L);
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertRewrittenCacheIsUsedByNewMavenProcess();
+    }
+
+    @Test
+    void ignores_cache_file_of_older_version() throws IOException {
+        writeModuleInfoFiles();
+        cacheFile.writeText("");
+        try (var out = new DataOutputStream(Files.newOutputStream(cacheFile.getAsPath()))) {
+            out.writeInt(0x4A4D4943);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeUTF(build.appModuleInfoFile.getAsPath().toString());
+            out.writeLong(0);
+        }
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(statistics()).containsEntry("cacheHits", 0L).containsEntry("cacheMisses", 2L);
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+        assertRewrittenCacheIsUsedByNewMavenProcess();
+    }
+
+    @Test
+    void counts_hits_and_misses_of_each_build() {
+        writeModuleInfoFiles();
+
+        inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 0L).containsEntry("cacheMisses", 2L);
+
+        inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 2L).containsEntry("cacheMisses", 0L);
+
+        build.libModuleInfoFile.writeText("module org.example.lib { requires java.sql; }");
+        inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 1L).containsEntry("cacheMisses", 1L);
+    }
+
+    @Test
+    void parses_file_again_if_it_was_modified_shortly_before_the_last_build() throws IOException {
+        writeModuleInfoFiles();
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app"))
+                .containsExactly("org.example:lib:jar:1.0:compile");
+
+        // e.g. edited within the resolution of the file system's timestamps
+        FileTime lastModified = Files.getLastModifiedTime(build.appModuleInfoFile.getAsPath());
+        build.appModuleInfoFile.replaceText("org.example.lib", "org.example.xyz");
+        Files.setLastModifiedTime(build.appModuleInfoFile.getAsPath(), lastModified);
+
+        assertThat(inProcess.afterProjectsRead().dependencies("app")).isEmpty();
+        assertThat(statistics()).containsEntry("cacheHits", 1L).containsEntry("cacheMisses", 1L);
+    }
+
+    @Test
+    void evicts_least_recently_used_entries_of_earlier_builds() throws IOException {
+        writeModuleInfoFiles();
+        var appTestModuleInfoFile = build.file("app/src/test/java/module-info.java");
+        appTestModuleInfoFile.writeText("""
+            module org.example.app.test {
+                requires org.example.app;
+            }""");
+        // not modified recently, so that unchanged files are neither read nor written to the cache file again
+        FileTime lastModified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for (var file : List.of(build.appModuleInfoFile, build.libModuleInfoFile, appTestModuleInfoFile)) {
+            Files.setLastModifiedTime(file.getAsPath(), lastModified);
+        }
+        String libText = build.libModuleInfoFile.text();
+        String appTestText = appTestModuleInfoFile.text();
+        String libPath = Path.of("lib", "src", "main", "java", "module-info.java").toString();
+
+        inProcess.afterProjectsRead();
+        assertThat(cacheFileText()).contains(libPath);
+
+        // builds without persisted cache: lib is used last in the first build, app test in the second
+        inProcess.userProperties.setProperty("javaModuleDependencies.parseCache", "false");
+        build.libModuleInfoFile.delete();
+        inProcess.afterProjectsRead();
+        inProcess.userProperties.setProperty("javaModuleDependencies.cacheMaxEntries", "2");
+        appTestModuleInfoFile.delete();
+        inProcess.afterProjectsRead();
+
+        // app test is still in memory, lib was evicted and is removed from the cache file
+        inProcess.userProperties.setProperty("javaModuleDependencies.parseCache", "true");
+        appTestModuleInfoFile.writeText(appTestText);
+        Files.setLastModifiedTime(appTestModuleInfoFile.getAsPath(), lastModified);
+        inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 2L).containsEntry("cacheMisses", 0L);
+        assertThat(cacheFileText()).doesNotContain(libPath);
+
+        build.libModuleInfoFile.writeText(libText);
+        Files.setLastModifiedTime(build.libModuleInfoFile.getAsPath(), lastModified);
+        inProcess.afterProjectsRead();
+        assertThat(statistics()).containsEntry("cacheHits", 2L).containsEntry("cacheMisses", 1L);
+        assertThat(cacheFileText()).contains(libPath);
+    }
+
+    @Test
+    void uses_files_prefetched_while_projects_are_read() {
+        writeModuleInfoFiles();
+        inProcess.userProperties.setProperty("javaModuleDependencies.prefetch", "true");
+        inProcess.projectReading = ModuleInfoParseCacheTest::awaitPrefetch;
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(statistics())
+                .containsEntry("prefetchedFiles", 2L)
+                .containsEntry("cacheHits", 2L)
+                .containsEntry("cacheMisses", 0L);
+        assertThat(result.dependencies("app")).containsExactly("org.example:lib:jar:1.0:compile");
+    }
+
+    @Test
+    void parses_file_again_if_it_was_modified_after_it_was_prefetched() {
+        writeModuleInfoFiles();
+        inProcess.userProperties.setProperty("javaModuleDependencies.prefetch", "true");
+        inProcess.projectReading = () -> {
+            awaitPrefetch();
+            build.appModuleInfoFile.writeText("module org.example.app { }");
+        };
+
+        var result = inProcess.afterProjectsRead();
+
+        assertThat(statistics())
+                .containsEntry("prefetchedFiles", 2L)
+                .containsEntry("cacheHits", 1L)
+                .containsEntry("cacheMisses", 1L);
+        assertThat(result.dependencies("app")).isEmpty();
+    }
+
+    private void assertRewrittenCacheIsUsedByNewMavenProcess() {
+        var restarted = new InProcessBuild(build);
+        restarted.userProperties.putAll(inProcess.userProperties);
+
+        restarted.afterProjectsRead();
+
+        assertThat(statistics()).containsEntry("cacheHits", 2L).containsEntry("cacheMisses", 0L);
+    }
+
+    /**
+     * Gives the prefetching, which runs in the background, the time to find and parse the few files of the build.
+     */
+    private static void awaitPrefetch() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeModuleInfoFiles() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+    }
+
+    private void writeModuleInfoFilesWithTestModules() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.file("lib/src/test/java/module-info.java").writeText("""
+            open module org.example.lib.test {
+                requires org.example.lib;
+            }""");
+        build.appModuleInfoFile.writeText("module org.example.app { }");
+        build.file("app/src/test/java/module-info.java").writeText("""
+            module org.example.app.test {
+                requires org.example.lib;
+                requires org.example.lib.test;
+            }""");
+    }
+
+    private String cacheFileText() throws IOException {
+        return new String(Files.readAllBytes(cacheFile.getAsPath()), ISO_8859_1);
+    }
+
+    private Map<String, Long> statistics() {
+        String json = build.file("target/java-module-dependencies/statistics.json").text();
+        Map<String, Long> values = new HashMap<>();
+        Matcher matcher = Pattern.compile("\"(\\w+)\": (\\d+)").matcher(json);
+        while (matcher.find()) {
+            values.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        }
+        return values;
+    }
+}
@@ -79,4 +79,35 @@ class ModuleInfoParseTest {
         assertThat(moduleInfo.get(REQUIRES_STATIC_TRANSITIVE)).isEmpty();
         assertThat(moduleInfo.get(REQUIRES_RUNTIME)).isEmpty();
     }
+
+    @Test
+    void ignores_imports_annotations_and_other_directives() {
+        var moduleInfo = new ModuleInfo("""
+            import org.example.api.Service;
+
+            @SuppressWarnings({"module some.other", "requires foo.bar.no;"})
+            open module some.thing {
+                exports some.thing.api to foo.bar.la, foo.bar.lo;
+                requires static transitive foo.bar.la;
+                uses Service;
+                provides Service with some.thing.internal.ServiceImpl;
+                requires foo.bar.lo;
+            }""");
+
+        assertThat(moduleInfo.getModuleName()).isEqualTo("some.thing");
+        assertThat(moduleInfo.get(REQUIRES)).containsExactly("foo.bar.lo");
+        assertThat(moduleInfo.get(REQUIRES_TRANSITIVE)).isEmpty();
+        assertThat(moduleInfo.get(REQUIRES_STATIC)).isEmpty();
+        assertThat(moduleInfo.get(REQUIRES_STATIC_TRANSITIVE)).containsExactly("foo.bar.la");
+        assertThat(moduleInfo.get(REQUIRES_RUNTIME)).isEmpty();
+    }
+
+    @Test
+    void parses_multiple_directives_in_one_line() {
+        var moduleInfo = new ModuleInfo("module some.thing { requires foo.bar.la; requires static foo.bar.lo; }");
+
+        assertThat(moduleInfo.getModuleName()).isEqualTo("some.thing");
+        assertThat(moduleInfo.get(REQUIRES)).containsExactly("foo.bar.la");
+        assertThat(moduleInfo.get(REQUIRES_STATIC)).containsExactly("foo.bar.lo");
+    }
 }
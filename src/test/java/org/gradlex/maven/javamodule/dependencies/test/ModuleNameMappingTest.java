@@ -25,6 +25,33 @@ class ModuleNameMappingTest {
                 .contains("[INFO] org.example:app:jar:1.0", "[INFO] \\- org.example:lib:jar:1.0:compile");
     }
 
+    @Test
+    void merges_scope_with_dependency_declared_in_pom() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        build.appPomFile.replaceText("</project>", """
+                <dependencies>
+                    <dependency>
+                        <groupId>org.example</groupId>
+                        <artifactId>lib</artifactId>
+                        <version>1.0</version>
+                        <scope>test</scope>
+                    </dependency>
+                </dependencies>
+            </project>
+            """);
+
+        build.verify();
+
+        var result = build.dependencyTree();
+        assertThat(result.getLog())
+                .contains("[INFO] org.example:app:jar:1.0", "[INFO] \\- org.example:lib:jar:1.0:compile")
+                .doesNotContain("org.example:lib:jar:1.0:test");
+    }
+
     @Test
     void can_add_custom_mapping_via_properties_file_in_default_location() {
         var modulesPropertiesFile = build.file(".mvn/modules.properties");
@@ -104,4 +131,17 @@ class ModuleNameMappingTest {
         assertThat(result.getLog())
                 .doesNotContain("[WARNING] Mapping missing in '.mvn/modules.properties': java.desktop");
     }
+
+    @Test
+    void ignores_jdk_modules_of_the_release_compiled_for() {
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires jdk.random;
+            }""");
+
+        var result = build.verify();
+
+        assertThat(result.getLog())
+                .doesNotContain("[WARNING] Mapping missing in '.mvn/modules.properties': jdk.random");
+    }
 }
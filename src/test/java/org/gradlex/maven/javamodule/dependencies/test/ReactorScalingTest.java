@@ -0,0 +1,71 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.LargeReactor;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.MavenBuild;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the extension on generated reactors of growing size (system property 'scalingTestSizes', default '100,1000').
+ * Run with './gradlew scalingTest' ('-PscalingTestSizes=100,1000,5000' to also test a reactor of 5000 projects).
+ */
+@Tag("scaling")
+class ReactorScalingTest {
+
+    // Time per project may grow by this factor from the smallest to the largest reactor (JIT warmup, GC, noise)
+    private static final double MAX_TIME_PER_PROJECT_GROWTH = 3.0;
+
+    @Test
+    void extension_time_grows_linearly_with_the_number_of_projects() throws Exception {
+        int[] sizes = Arrays.stream(System.getProperty("scalingTestSizes", "100,1000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .sorted()
+                .toArray();
+
+        double smallestTimePerProject = 0;
+        for (int size : sizes) {
+            var build = new MavenBuild();
+            var reactor = new LargeReactor(build, size);
+
+            var result = build.runner().execute("validate", "-DjavaModuleDependencies.statistics=true");
+
+            assertThat(result.getLog()).contains("[INFO] BUILD SUCCESS");
+            var statistics = readStatistics(build);
+            assertThat(statistics.get("projects")).isEqualTo(size + LargeReactor.PARENT_DEPTH + 1);
+            assertThat(statistics.get("directives")).isEqualTo(reactor.getDirectives());
+            assertThat(statistics.get("missingMappings")).isZero();
+            assertThat(statistics.get("missingVersions")).isZero();
+
+            double timePerProject = (double) statistics.get("total") / size;
+            System.out.printf(
+                    "%d projects: %d ms extension time, %.1f us per project%n",
+                    size, statistics.get("total") / 1_000_000, timePerProject / 1000);
+            if (smallestTimePerProject == 0) {
+                smallestTimePerProject = timePerProject;
+            } else {
+                assertThat(timePerProject)
+                        .as("time per project with %d projects", size)
+                        .isLessThan(smallestTimePerProject * MAX_TIME_PER_PROJECT_GROWTH);
+            }
+            build.projectDir.delete();
+        }
+    }
+
+    private static Map<String, Long> readStatistics(MavenBuild build) {
+        String json = build.file("target/java-module-dependencies/statistics.json").text();
+        Map<String, Long> values = new HashMap<>();
+        Matcher matcher = Pattern.compile("\"(\\w+)\": (\\d+)").matcher(json);
+        while (matcher.find()) {
+            values.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,135 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+import org.gradlex.maven.javamodule.dependencies.SharedMappings;
+import org.gradlex.maven.javamodule.dependencies.internal.utils.ModuleNameIndex;
+import org.junit.jupiter.api.Test;
+
+class SharedMappingsTest {
+
+    @Test
+    void index_contains_the_mappings_of_the_properties_files() throws IOException {
+        Map<String, String> expected = properties();
+        ModuleNameIndex index;
+        try (InputStream in = SharedMappings.class.getResourceAsStream("modules.idx")) {
+            assertThat(in).as("modules.idx").isNotNull();
+            index = ModuleNameIndex.read(in);
+        }
+
+        assertThat(expected).hasSizeGreaterThan(1000);
+        assertThat(expected.keySet()).allSatisfy(moduleName -> {
+            assertThat(index.get(moduleName)).as(moduleName).isEqualTo(expected.get(moduleName));
+            assertThat(SharedMappings.get(moduleName)).as(moduleName).isEqualTo(expected.get(moduleName));
+        });
+        assertThat(absentModuleNames(expected)).allSatisfy(moduleName -> {
+            assertThat(index.get(moduleName)).as(moduleName).isNull();
+            assertThat(SharedMappings.get(moduleName)).as(moduleName).isNull();
+        });
+    }
+
+    @Test
+    void falls_back_to_the_properties_files_if_index_is_missing() throws ReflectiveOperationException {
+        Map<String, String> expected = properties();
+        ClassLoader withoutIndex = new WithoutIndexClassLoader();
+        Method get = withoutIndex.loadClass(SharedMappings.class.getName()).getMethod("get", String.class);
+        Field index = withoutIndex.loadClass(SharedMappings.class.getName() + "$Holder").getDeclaredField("INDEX");
+        index.setAccessible(true);
+        Function<String, Object> sharedMappings = moduleName -> {
+            try {
+                return get.invoke(null, moduleName);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        assertThat(expected.keySet()).allSatisfy(moduleName -> assertThat(sharedMappings.apply(moduleName))
+                .as(moduleName)
+                .isEqualTo(expected.get(moduleName)));
+        assertThat(absentModuleNames(expected))
+                .allSatisfy(moduleName -> assertThat(sharedMappings.apply(moduleName))
+                        .as(moduleName)
+                        .isNull());
+        assertThat(index.get(null)).as("index of the classes loaded again").isNull();
+    }
+
+    private static Map<String, String> properties() {
+        Map<String, String> mappings = new HashMap<>();
+        for (String file : List.of("unique_modules.properties", "modules.properties")) {
+            Properties properties = new Properties();
+            try (InputStream in = SharedMappings.class.getResourceAsStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            properties.forEach((moduleName, ga) -> mappings.put((String) moduleName, (String) ga));
+        }
+        return mappings;
+    }
+
+    /**
+     * @return names that are not mapped, including names that only differ slightly from mapped names
+     */
+    private static List<String> absentModuleNames(Map<String, String> mappings) {
+        String mapped = mappings.keySet().iterator().next();
+        return List.of(
+                "",
+                "org.example.unknown",
+                "java.base",
+                mapped + ".x",
+                mapped.substring(0, mapped.length() - 1),
+                mapped.toUpperCase());
+    }
+
+    /**
+     * Loads the classes of the extension again, without access to the index.
+     */
+    private static class WithoutIndexClassLoader extends ClassLoader {
+
+        WithoutIndexClassLoader() {
+            super(SharedMappingsTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("org.gradlex.maven.javamodule.dependencies.") || name.contains(".test.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            if (name.equals("org/gradlex/maven/javamodule/dependencies/modules.idx")) {
+                return null;
+            }
+            return super.getResource(name);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.InProcessBuild;
+import org.gradlex.maven.javamodule.dependencies.test.fixture.MavenBuild;
+import org.junit.jupiter.api.Test;
+
+class StatisticsTest {
+
+    MavenBuild build = new MavenBuild();
+
+    @Test
+    void prints_and_writes_statistics_if_enabled() throws Exception {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+                requires commons.math3;
+            }""");
+        build.appPomFile.replaceText("</project>", """
+                <dependencies>
+                    <dependency>
+                        <groupId>org.apache.commons</groupId>
+                        <artifactId>commons-math3</artifactId>
+                        <version>3.6.1</version>
+                    </dependency>
+                </dependencies>
+            </project>
+            """);
+
+        var result = build.runner().execute("verify", "-DjavaModuleDependencies.statistics=true");
+
+        assertThat(result.getLog())
+                .contains("[INFO] Java Module Dependencies: projects=3,")
+                .contains("moduleInfoFiles=2, directives=2,")
+                .contains("missingMappings=1, missingVersions=0, dependenciesAdded=1,");
+        assertThat(build.file("target/java-module-dependencies/statistics.json").text())
+                .contains("\"missingMappings\": 1", "\"injection\": ");
+    }
+
+    @Test
+    void does_not_print_statistics_by_default() {
+        var result = build.verify();
+
+        assertThat(result.getLog()).doesNotContain("Java Module Dependencies:");
+        assertThat(build.file("target/java-module-dependencies/statistics.json").exists())
+                .isFalse();
+    }
+
+    @Test
+    void total_time_contains_the_time_of_all_phases() {
+        build.libModuleInfoFile.writeText("module org.example.lib { }");
+        build.appModuleInfoFile.writeText("""
+            module org.example.app {
+                requires org.example.lib;
+            }""");
+        var inProcess = new InProcessBuild(build);
+        inProcess.userProperties.setProperty("javaModuleDependencies.statistics", "true");
+        inProcess.userProperties.setProperty("javaModuleDependencies.moduleGraph", "true");
+
+        inProcess.afterProjectsRead();
+
+        String statistics = build.file("target/java-module-dependencies/statistics.json").text();
+        long phases = 0;
+        // single-threaded, so that the phases do not overlap
+        for (String phase : new String[] {"discovery", "read", "parse", "managedDependencies", "injection"}) {
+            phases += nanos(statistics, phase);
+        }
+        assertThat(nanos(statistics, "total")).isGreaterThanOrEqualTo(phases).isPositive();
+    }
+
+    private static long nanos(String statistics, String phase) {
+        Matcher value = Pattern.compile("\"" + phase + "\": (\\d+)").matcher(statistics);
+        assertThat(value.find()).as(phase).isTrue();
+        return Long.parseLong(value.group(1));
+    }
+}
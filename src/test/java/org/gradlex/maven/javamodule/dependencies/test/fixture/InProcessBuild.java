@@ -0,0 +1,311 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test.fixture;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Activation;
+import org.apache.maven.model.ActivationFile;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifactType;
+import org.eclipse.aether.util.artifact.DefaultArtifactTypeRegistry;
+import org.gradlex.maven.javamodule.dependencies.JavaModuleDependenciesLifecycleParticipant;
+
+/**
+ * Runs {@link JavaModuleDependenciesLifecycleParticipant#afterProjectsRead(MavenSession)} in the test JVM on the
+ * projects of a {@link MavenBuild}, without starting Maven. The POMs are read and inherited in a simplified way:
+ * coordinates, properties and 'dependencyManagement' are inherited from the parent POM, and the properties and
+ * 'dependencyManagement' of active profiles are applied. A profile is active if it is 'activeByDefault' or if its
+ * activation file exists. As in Maven, the profiles of parent POMs are activated for the directory of the child
+ * project. Only the versions in 'dependencyManagement' are interpolated and nothing is imported (scope 'import'). Like
+ * in the Maven Daemon, the participant is reused for all runs of one instance.
+ */
+public class InProcessBuild {
+
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final Path projectDir;
+    private final JavaModuleDependenciesLifecycleParticipant participant;
+    private final RepositorySystemSession repositorySession;
+
+    public final Properties userProperties = new Properties();
+    // artifactIds of the projects selected for the build ('-pl'), all projects are selected if empty
+    public final Set<String> selectedProjects = new HashSet<>();
+    // '-am' / '-amd' as MavenExecutionRequest.REACTOR_MAKE_*, null for none
+    public String makeBehavior;
+    // local Maven repository of the build, none if null
+    public Path localRepository;
+    // runs between 'afterSessionStart' and 'afterProjectsRead', where Maven reads the POMs
+    public Runnable projectReading = () -> {};
+    // runs between 'afterProjectsRead' and 'afterSessionEnd', where Maven executes the mojos
+    public Runnable execution = () -> {};
+
+    public InProcessBuild(MavenBuild build) {
+        this(build, null);
+    }
+
+    /**
+     * @param repositorySystem injected into the participant, Maven Resolver is not available if null
+     */
+    public InProcessBuild(MavenBuild build, RepositorySystem repositorySystem) {
+        this.projectDir = build.projectDir.getAsPath();
+        this.participant = new JavaModuleDependenciesLifecycleParticipant(repositorySystem);
+        this.repositorySession = repositorySystem == null ? null : repositorySession();
+    }
+
+    private static RepositorySystemSession repositorySession() {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        // types of Maven with an extension or classifier that differs from the type
+        session.setArtifactTypeRegistry(new DefaultArtifactTypeRegistry()
+                .add(new DefaultArtifactType("test-jar", "jar", "tests", "java"))
+                .add(new DefaultArtifactType("maven-plugin", "jar", "", "java")));
+        return session;
+    }
+
+    /**
+     * Reads the projects and runs the participant on them as one build (session).
+     */
+    @SuppressWarnings("deprecation") // MavenSession constructor
+    public Result afterProjectsRead() {
+        List<MavenProject> projects = new ArrayList<>();
+        readProject(projectDir.resolve("pom.xml"), null, List.of(), projects);
+
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setMultiModuleProjectDirectory(projectDir.toFile());
+        request.setUserProperties(userProperties);
+        request.setMakeBehavior(makeBehavior);
+        if (localRepository != null) {
+            request.setLocalRepositoryPath(localRepository.toFile());
+        }
+        MavenSession session = new MavenSession(null, repositorySession, request, new DefaultMavenExecutionResult());
+        session.setProjects(projects.stream()
+                .filter(project -> selectedProjects.isEmpty() || selectedProjects.contains(project.getArtifactId()))
+                .collect(Collectors.toList()));
+        session.setAllProjects(projects);
+        try {
+            participant.afterSessionStart(session); // as for extensions registered in '.mvn/extensions.xml'
+            projectReading.run();
+            participant.afterProjectsRead(session);
+            execution.run();
+        } catch (MavenExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            participant.afterSessionEnd(session);
+        }
+        return new Result(projects, session.getProjects());
+    }
+
+    /**
+     * @param parentLineage the original models of all parents, starting with the root
+     */
+    private static void readProject(
+            Path pom, MavenProject parent, List<Model> parentLineage, List<MavenProject> projects) {
+        Model original = Io.unchecked(() -> {
+            try (Reader reader = Files.newBufferedReader(pom)) {
+                return new MavenXpp3Reader().read(reader);
+            } catch (XmlPullParserException e) {
+                throw new IllegalArgumentException(pom.toString(), e);
+            }
+        });
+        List<Model> lineage = new ArrayList<>(parentLineage);
+        lineage.add(original);
+        File basedir = pom.getParent().toFile();
+        Model model = null;
+        for (Model raw : lineage) {
+            Model current = raw.clone();
+            applyActiveProfiles(current, basedir);
+            if (model != null) {
+                inherit(current, model);
+            }
+            model = current;
+        }
+        interpolateManagedVersions(model);
+        MavenProject project = new MavenProject(model);
+        project.setOriginalModel(original);
+        project.setFile(pom.toFile());
+        project.setParent(parent);
+        project.addCompileSourceRoot(new File(basedir, "src/main/java").getAbsolutePath());
+        project.addTestCompileSourceRoot(new File(basedir, "src/test/java").getAbsolutePath());
+        // as in the Super POM
+        project.getBuild().setDirectory(new File(basedir, "target").getAbsolutePath());
+        project.getBuild().setOutputDirectory(new File(basedir, "target/classes").getAbsolutePath());
+        project.getBuild().setTestOutputDirectory(new File(basedir, "target/test-classes").getAbsolutePath());
+        projects.add(project);
+
+        for (String module : model.getModules()) {
+            readProject(pom.getParent().resolve(module).resolve("pom.xml"), project, lineage, projects);
+        }
+    }
+
+    private static void applyActiveProfiles(Model model, File basedir) {
+        for (Profile profile : model.getProfiles()) {
+            if (isActive(profile.getActivation(), basedir)) {
+                model.getProperties().putAll(profile.getProperties());
+                if (profile.getDependencyManagement() != null) {
+                    DependencyManagement dependencyManagement = new DependencyManagement();
+                    dependencyManagement.setDependencies(merge(
+                            profile.getDependencyManagement().getDependencies(),
+                            model.getDependencyManagement() == null
+                                    ? List.of()
+                                    : model.getDependencyManagement().getDependencies()));
+                    model.setDependencyManagement(dependencyManagement);
+                }
+            }
+        }
+    }
+
+    private static boolean isActive(Activation activation, File basedir) {
+        if (activation == null) {
+            return false;
+        }
+        if (activation.isActiveByDefault()) {
+            return true;
+        }
+        ActivationFile file = activation.getFile();
+        if (file == null) {
+            return false;
+        }
+        if (file.getExists() != null) {
+            return resolve(file.getExists(), basedir).exists();
+        }
+        return file.getMissing() != null && !resolve(file.getMissing(), basedir).exists();
+    }
+
+    private static File resolve(String path, File basedir) {
+        File file = new File(path.replace("${project.basedir}", basedir.getPath())
+                .replace("${basedir}", basedir.getPath()));
+        return file.isAbsolute() ? file : new File(basedir, file.getPath());
+    }
+
+    private static void inherit(Model model, Model parent) {
+        if (model.getGroupId() == null) {
+            model.setGroupId(parent.getGroupId());
+        }
+        if (model.getVersion() == null) {
+            model.setVersion(parent.getVersion());
+        }
+        Properties properties = new Properties();
+        properties.putAll(parent.getProperties());
+        properties.putAll(model.getProperties());
+        model.setProperties(properties);
+
+        if (parent.getDependencyManagement() != null) {
+            DependencyManagement dependencyManagement = new DependencyManagement();
+            dependencyManagement.setDependencies(merge(
+                    model.getDependencyManagement() == null
+                            ? List.of()
+                            : model.getDependencyManagement().getDependencies(),
+                    parent.getDependencyManagement().getDependencies()));
+            model.setDependencyManagement(dependencyManagement);
+        }
+    }
+
+    /**
+     * @return the entries of both lists, entries of the first list win over entries for the same artifact in the second
+     */
+    private static List<Dependency> merge(List<Dependency> dominant, List<Dependency> recessive) {
+        List<Dependency> merged = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (Dependency dependency : dominant) {
+            if (keys.add(dependency.getManagementKey())) {
+                merged.add(dependency.clone());
+            }
+        }
+        for (Dependency dependency : recessive) {
+            if (keys.add(dependency.getManagementKey())) {
+                merged.add(dependency.clone());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Replaces '${...}' in the managed versions with properties of the model or its version.
+     */
+    private static void interpolateManagedVersions(Model model) {
+        if (model.getDependencyManagement() == null) {
+            return;
+        }
+        Properties values = new Properties();
+        values.putAll(model.getProperties());
+        values.setProperty("project.version", model.getVersion());
+        for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+            String version = dependency.getVersion();
+            // values may contain expressions themselves
+            for (int depth = 0; version != null && depth < 10; depth++) {
+                Matcher expression = EXPRESSION.matcher(version);
+                String value = expression.find() ? values.getProperty(expression.group(1)) : null;
+                if (value == null) {
+                    break;
+                }
+                version = version.substring(0, expression.start()) + value + version.substring(expression.end());
+            }
+            dependency.setVersion(version);
+        }
+    }
+
+    public static class Result {
+        private final List<MavenProject> projects;
+        private final List<MavenProject> selected;
+
+        private Result(List<MavenProject> projects, List<MavenProject> selected) {
+            this.projects = projects;
+            this.selected = selected;
+        }
+
+        public List<MavenProject> getProjects() {
+            return projects;
+        }
+
+        /**
+         * @return the artifactIds of the projects the build runs on, after the participant may have changed them
+         */
+        public List<String> selectedProjects() {
+            return selected.stream().map(MavenProject::getArtifactId).collect(Collectors.toList());
+        }
+
+        /**
+         * @return the dependencies of a project in the format of 'dependency:tree'
+         *     ('groupId:artifactId:type[:classifier]:version:scope')
+         */
+        public List<String> dependencies(String artifactId) {
+            for (MavenProject project : projects) {
+                if (project.getArtifactId().equals(artifactId)) {
+                    List<String> dependencies = new ArrayList<>();
+                    for (Dependency dependency : project.getDependencies()) {
+                        dependencies.add(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":"
+                                + dependency.getType()
+                                + (dependency.getClassifier() == null ? "" : ":" + dependency.getClassifier())
+                                + ":" + dependency.getVersion() + ":"
+                                + (dependency.getScope() == null ? "compile" : dependency.getScope()));
+                    }
+                    return dependencies;
+                }
+            }
+            throw new IllegalArgumentException("No project: " + artifactId);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: Apache-2.0
+package org.gradlex.maven.javamodule.dependencies.test.fixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a {@link MavenBuild} into a reactor with the given number of projects. The projects are spread over a chain of
+ * parent POMs. The root POM manages the versions of a large (BOM-style) list of external modules, which each parent
+ * partially overrides. Each project requires up to two other projects and a few external modules, which are mapped in
+ * '.mvn/modules.properties'.
+ */
+public class LargeReactor {
+
+    public static final int PARENT_DEPTH = 4;
+    public static final int MANAGED = 2000;
+    public static final int EXTERNAL_REQUIRES = 5;
+
+    private final int projectCount;
+    private int directives;
+
+    public LargeReactor(MavenBuild build, int projectCount) {
+        this.projectCount = projectCount;
+
+        StringBuilder mappings = new StringBuilder();
+        for (int m = 0; m < MANAGED; m++) {
+            mappings.append("ext.m").append(m).append("=org.example.external").append(m / 50);
+            mappings.append(":artifact-").append(m).append('\n');
+        }
+        build.file(".mvn/modules.properties").writeText(mappings.toString());
+
+        List<List<String>> modulesPerLevel = new ArrayList<>();
+        for (int level = 0; level <= PARENT_DEPTH; level++) {
+            modulesPerLevel.add(new ArrayList<>());
+            if (level < PARENT_DEPTH) {
+                modulesPerLevel.get(level).add("level" + (level + 1));
+            }
+        }
+        for (int i = 0; i < projectCount; i++) {
+            int level = i % (PARENT_DEPTH + 1);
+            modulesPerLevel.get(level).add("p" + i);
+            writeProject(build, levelPath(level) + "p" + i, parentArtifactId(level), i);
+        }
+
+        build.rootPom.replaceText("""
+                    <module>app</module>
+                    <module>lib</module>
+            """, modules(modulesPerLevel.get(0)));
+        build.rootPom.replaceText("</project>", dependencyManagement(0, MANAGED) + "</project>");
+        for (int level = 1; level <= PARENT_DEPTH; level++) {
+            build.file(levelPath(level) + "pom.xml").writeText("""
+                <project>
+                    <modelVersion>4.0.0</modelVersion>
+                    <parent>
+                        <artifactId>%s</artifactId>
+                        <groupId>org.example</groupId>
+                        <version>1.0</version>
+                    </parent>
+                    <artifactId>level%d</artifactId>
+                    <packaging>pom</packaging>
+                    <modules>
+                %s    </modules>
+                %s</project>
+                """.formatted(
+                            parentArtifactId(level - 1),
+                            level,
+                            modules(modulesPerLevel.get(level)),
+                            dependencyManagement(level, MANAGED / 20)));
+        }
+    }
+
+    public int getProjectCount() {
+        return projectCount;
+    }
+
+    /**
+     * @return the number of 'requires' directives in all module-info.java files
+     */
+    public int getDirectives() {
+        return directives;
+    }
+
+    private void writeProject(MavenBuild build, String path, String parent, int i) {
+        build.file(path + "/pom.xml").writeText("""
+            <project>
+                <modelVersion>4.0.0</modelVersion>
+                <parent>
+                    <artifactId>%s</artifactId>
+                    <groupId>org.example</groupId>
+                    <version>1.0</version>
+                </parent>
+                <artifactId>p%d</artifactId>
+            </project>
+            """.formatted(parent, i));
+
+        StringBuilder moduleInfo = new StringBuilder("module org.example.p" + i + " {\n");
+        if (i > 0) {
+            moduleInfo.append("    requires transitive org.example.p").append(i - 1).append(";\n");
+            directives++;
+        }
+        if (i / 2 < i - 1) {
+            moduleInfo.append("    requires org.example.p").append(i / 2).append(";\n");
+            directives++;
+        }
+        for (int j = 0; j < EXTERNAL_REQUIRES; j++) {
+            moduleInfo.append(j == 0 ? "    requires static ext.m" : "    requires ext.m");
+            moduleInfo.append((i * 31 + j * 7919) % MANAGED).append(";\n");
+            directives++;
+        }
+        build.file(path + "/src/main/java/module-info.java").writeText(moduleInfo.append("}\n").toString());
+    }
+
+    private static String levelPath(int level) {
+        StringBuilder path = new StringBuilder();
+        for (int l = 1; l <= level; l++) {
+            path.append("level").append(l).append('/');
+        }
+        return path.toString();
+    }
+
+    private static String parentArtifactId(int level) {
+        return level == 0 ? "test-project" : "level" + level;
+    }
+
+    private static String modules(List<String> modules) {
+        StringBuilder xml = new StringBuilder();
+        for (String module : modules) {
+            xml.append("        <module>").append(module).append("</module>\n");
+        }
+        return xml.toString();
+    }
+
+    /**
+     * The root POM manages all external modules, each parent overrides the versions of some of them.
+     */
+    private static String dependencyManagement(int level, int count) {
+        StringBuilder xml = new StringBuilder("    <dependencyManagement>\n        <dependencies>\n");
+        for (int i = 0; i < count; i++) {
+            int m = level == 0 ? i : (i * 20 + level) % MANAGED;
+            xml.append("            <dependency>\n");
+            xml.append("                <groupId>org.example.external").append(m / 50).append("</groupId>\n");
+            xml.append("                <artifactId>artifact-").append(m).append("</artifactId>\n");
+            xml.append("                <version>").append(level + 1).append('.').append(m).append("</version>\n");
+            xml.append("            </dependency>\n");
+        }
+        return xml.append("        </dependencies>\n    </dependencyManagement>\n").toString();
+    }
+}
@@ -73,11 +73,11 @@ public class MavenBuild {
                         <extension>
                             <groupId>org.gradlex</groupId>
                             <artifactId>java-module-dependencies-maven-extension</artifactId>
-                            <version>0.1</version>
+                            <version>%s</version>
                         </extension>
                      </extensions>
                 </build>
-            </project>""");
+            </project>""".formatted(System.getProperty("extensionVersion")));
 
         appPomFile.writeText("""
             <project>